@@ -1,5 +1,6 @@
 import javax.swing.*;
 import java.awt.*;
+import java.util.ArrayList;
 
 /**
  * Shows information about the process of the algorithm
@@ -11,21 +12,31 @@ public class AlgebraPanel extends JPanel{
     }
 
     /**
-     * Paints the info about the next clip on the right side of the screen
+     * Paints the info about the next clip on the right side of the screen, the sweep trace is formatted
+     * only for the latest rows that fit, above a summary of the metrics
      * @param g Graphics object used by JPanel
      */
     public void paint(Graphics g)
     {
         super.paintComponent(g);
+        ArrayList<String> summary = Metrics.snapshot().summary();
+        int y = getHeight() - 20 * summary.size();
+        for (String line : summary) {
+            g.drawString(line, 30, y);
+            y += 20;
+        }
         if (Main.phase== Main.PhaseType.DRAW)
             return;
         Font currentFont = g.getFont();
         Font newFont = currentFont.deriveFont(currentFont.getSize() * 1.2F);
         g.setFont(newFont);
-        if (Main.gpanel.tableRows!=null) {
-            int y = 20;
-            for (String str : Main.gpanel.tableRows) {
-                g.drawString(str, 30, y);
+        SweepTrace trace = Main.gpanel.triangulator.trace;
+        if (trace != null) {
+            g.drawString(SweepTrace.header(), 30, 20);
+            int shown = Math.max(0, Math.min(trace.size(), (getHeight() - 20 * (summary.size() + 1) - 20) / 30));
+            y = 50;
+            for (int i = trace.size() - shown; i < trace.size(); i++) {
+                g.drawString(trace.row(i), 30, y);
                 y += 30;
             }
         }
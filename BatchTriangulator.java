@@ -0,0 +1,269 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Triangulates many PSLG files concurrently without the GUI, run with
+ * java BatchTriangulator input output [-j jobs] [-p] [-c megabytes], or java Main --batch with the same arguments.
+ * The input is a directory of .node, .poly and binary .pslg files or a manifest listing one file a line.
+ * The triangles of each file are streamed to a file of the same name with .tris added in the output
+ * directory, and the throughput and latency percentiles are reported at the end. Each file is a job of
+ * its own on a virtual thread when the JVM has them and on a fixed pool otherwise, with at most the given
+ * number running at once so the memory of their sweeps stays bounded. With -c the triangles go through a
+ * TriangulationCache of that many megabytes, so a PSLG listed again is written without being swept again.
+ */
+public class BatchTriangulator {
+    private final int jobs;
+    private final boolean parallelMountains;
+    private TriangulationCache cache;
+    private final AtomicLong vertices = new AtomicLong();
+    private final AtomicLong triangles = new AtomicLong();
+
+    /**
+     * Constructs a batch run
+     * @param jobs the most files triangulated at once
+     * @param parallelMountains whether each file is also swept in slabs and has its mountains triangulated
+     * concurrently
+     */
+    public BatchTriangulator(int jobs, boolean parallelMountains)
+    {
+        this.jobs = Math.max(1, jobs);
+        this.parallelMountains = parallelMountains;
+    }
+
+    /**
+     * Sends the triangulations through a cache, to skip the sweep of PSLGs seen before
+     * @param cache the cache, or null to triangulate every file
+     */
+    public void setCache(TriangulationCache cache)
+    {
+        this.cache = cache;
+    }
+
+    /**
+     * Runs the batch mode from the command line
+     * @param args the input directory or manifest, the output directory, then -j and the number of jobs at
+     * once, the number of cores if left out, -p to also sweep and triangulate each file concurrently, and -c and
+     * the megabytes of triangles to cache
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        if (args.length < 2)
+        {
+            System.err.println("usage: java BatchTriangulator <input directory or manifest> <output directory> [-j jobs] [-p] [-c megabytes]");
+            System.exit(2);
+        }
+        int jobs = Runtime.getRuntime().availableProcessors();
+        boolean parallelMountains = false;
+        long cacheBytes = 0;
+        for (int i = 2; i < args.length; i++)
+        {
+            if (args[i].equals("-j") && i + 1 < args.length)
+                jobs = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-p"))
+                parallelMountains = true;
+            else if (args[i].equals("-c") && i + 1 < args.length)
+                cacheBytes = Long.parseLong(args[++i]) << 20;
+            else
+            {
+                System.err.println("unknown option " + args[i]);
+                System.exit(2);
+            }
+        }
+        Path output = Paths.get(args[1]);
+        Files.createDirectories(output);
+        BatchTriangulator batch = new BatchTriangulator(jobs, parallelMountains);
+        if (cacheBytes > 0)
+            batch.setCache(new TriangulationCache(cacheBytes));
+        int failures = batch.run(inputs(Paths.get(args[0])), output);
+        if (failures > 0)
+            System.exit(1);
+    }
+
+    /**
+     * Lists the PSLG files to triangulate. A .node file is left out of a directory listing if there is a
+     * .poly file of the same name, since the .poly file reads it.
+     * @param input a directory, or a manifest listing a file a line relative to itself, with # comments
+     * @return the files, sorted if they came from a directory
+     * @throws IOException if the directory or manifest can not be read
+     */
+    public static ArrayList<Path> inputs(Path input) throws IOException
+    {
+        ArrayList<Path> files = new ArrayList<>();
+        if (Files.isDirectory(input))
+        {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(input, "*.{node,poly,pslg}"))
+            {
+                for (Path file : stream)
+                {
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(".node") && Files.exists(file.resolveSibling(name.replaceAll("\\.node$", ".poly"))))
+                        continue;
+                    files.add(file);
+                }
+            }
+            files.sort(null);
+            return files;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(input))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                int comment = line.indexOf('#');
+                if (comment >= 0)
+                    line = line.substring(0, comment);
+                line = line.trim();
+                if (!line.isEmpty())
+                    files.add(input.resolveSibling(line));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Triangulates files concurrently, writing each to output, and reports the run on System.out.
+     * A file that can not be triangulated is reported on System.err and the others carry on.
+     * @param files the PSLG files
+     * @param output the directory for the triangle files
+     * @return the number of files that failed
+     * @throws InterruptedException if interrupted while waiting for the jobs
+     */
+    public int run(ArrayList<Path> files, Path output) throws InterruptedException
+    {
+        long[] latencies = new long[files.size()];
+        AtomicLong failures = new AtomicLong();
+        Semaphore running = new Semaphore(jobs);
+        long start = System.nanoTime();
+        ExecutorService executor = newExecutor(jobs);
+        try {
+            for (int i = 0; i < files.size(); i++)
+            {
+                int job = i;
+                running.acquire();
+                executor.execute(() -> {
+                    try {
+                        latencies[job] = triangulate(files.get(job), output);
+                    } catch (IOException | RuntimeException e) {
+                        latencies[job] = -1;
+                        failures.incrementAndGet();
+                        System.err.println(files.get(job) + ": " + ((e instanceof NoSuchFileException) ? "no such file" : e.getMessage()));
+                    } finally {
+                        running.release();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        report(latencies, System.nanoTime() - start);
+        return (int) failures.get();
+    }
+
+    /**
+     * Triangulates one file, streaming its triangles to a file in output. A PSLG the sweep can not triangulate
+     * fails before the triangle file is opened, and if it fails part way through the triangle file is deleted,
+     * so no partial output is left behind.
+     * @return the time taken in nanoseconds
+     */
+    private long triangulate(Path file, Path output) throws IOException
+    {
+        long start = System.nanoTime();
+        Pslg pslg = PslgFiles.read(file);
+        validate(pslg);
+        Path target = output.resolve(file.getFileName() + ".tris");
+        try (TriangleFileWriter writer = new TriangleFileWriter(target))
+        {
+            if (cache == null)
+                Triangulator.triangulate(pslg.xs, pslg.ys, pslg.edgePairs, parallelMountains, writer);
+            else
+                cache.triangulate(pslg.xs, pslg.ys, pslg.edgePairs, parallelMountains, writer);
+            triangles.addAndGet(writer.count());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+        vertices.addAndGet(pslg.size());
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Checks that a PSLG is one the sweep triangulates correctly, with no two vertices at the same coords and
+     * no two edges crossing, touching or overlapping other than at a shared end, which CrossingSweep finds in
+     * O((n+k) log n)
+     * @param pslg the PSLG
+     * @throws IOException naming the first problem found
+     */
+    static void validate(Pslg pslg) throws IOException
+    {
+        int[] duplicate = pslg.duplicate();
+        if (duplicate != null)
+            throw new IOException("two vertices are at (" + duplicate[0] + "," + duplicate[1] + ")");
+        int[] crossings = CrossingSweep.crossings(pslg);
+        if (crossings.length > 0)
+            throw new IOException((crossings.length / 2) + " pairs of edges cross, the first edges " + crossings[0]
+                    + " and " + crossings[1]);
+    }
+
+    /**
+     * Makes an executor with a virtual thread per job if this JVM has virtual threads, found by reflection so
+     * this still runs on older JVMs, and with a fixed pool of threads otherwise
+     * @param threads the size of the fixed pool
+     * @return the executor
+     */
+    static ExecutorService newExecutor(int threads)
+    {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    /**
+     * Prints the throughput of the run and the percentiles of the time taken per file
+     * @param latencies the time taken by each file in nanoseconds, -1 for the files that failed
+     * @param elapsed the time the whole run took in nanoseconds
+     */
+    private void report(long[] latencies, long elapsed)
+    {
+        long[] done = Arrays.stream(latencies).filter(latency -> latency >= 0).sorted().toArray();
+        double seconds = elapsed / 1e9;
+        System.out.println(String.format("%d of %d files, %d vertices, %d triangles in %.2f s",
+                done.length, latencies.length, vertices.get(), triangles.get(), seconds));
+        System.out.println(String.format("%-20s%-20s", "files/s", "vertices/s"));
+        System.out.println(String.format("%-20.1f%-20.0f", done.length / seconds, vertices.get() / seconds));
+        if (cache != null)
+            System.out.println("cache: " + cache.stats());
+        if (done.length == 0)
+            return;
+        System.out.println(String.format("%-12s%-12s%-12s%-12s%-12s", "p50 (ms)", "p90 (ms)", "p99 (ms)", "p99.9 (ms)", "max (ms)"));
+        System.out.println(String.format("%-12.2f%-12.2f%-12.2f%-12.2f%-12.2f", percentile(done, 0.5) / 1e6,
+                percentile(done, 0.9) / 1e6, percentile(done, 0.99) / 1e6, percentile(done, 0.999) / 1e6,
+                done[done.length-1] / 1e6));
+    }
+
+    /**
+     * Finds a percentile by the nearest-rank method
+     * @param sorted the values in increasing order, at least one
+     * @param fraction the percentile as a fraction
+     * @return the value
+     */
+    static long percentile(long[] sorted, double fraction)
+    {
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
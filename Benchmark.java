@@ -0,0 +1,291 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Timing harness for the parts of the triangulation algorithm, run with java Benchmark
+ */
+public class Benchmark {
+
+    /**
+     * Runs the benchmarks
+     * @param args args
+     */
+    public static void main(String[] args)
+    {
+        sweepLineStatus();
+        predicateAllocations();
+        orientation();
+    }
+
+    /**
+     * Compares finding the left and right neighbours of every event by scanning a list of the edges
+     * crossing the sweep line against the ordered sweep line status. The input is a ladder of n long
+     * edges which all cross the sweep line at once, so the scan is O(n^2) and the status O(n log n).
+     */
+    public static void sweepLineStatus()
+    {
+        System.out.println(String.format("%-10s%-20s%-20s", "n", "list (ns/event)", "status (ns/event)"));
+        for (int n = 1000; n <= 32000; n *= 2)
+        {
+            ArrayList<Edge> ladder = ladder(n);
+            scan(ladder);
+            status(ladder);
+            long listTime = scan(ladder);
+            long statusTime = status(ladder);
+            System.out.println(String.format("%-10d%-20d%-20d", n, listTime / (2*n), statusTime / (2*n)));
+        }
+    }
+
+    /**
+     * Measures the bytes allocated per call of the geometric predicates, comparing the int[] versions fed
+     * from Vertex.getCoordsArr() against the Predicates kernel, and the sweep line status lookups. Once the
+     * JIT has warmed up it may remove the int[] allocations by escape analysis, the kernel does not rely on
+     * that. The cold run includes loading the classes, so exits with status 1 if the kernel or the lookups
+     * allocate once warm.
+     */
+    public static void predicateAllocations()
+    {
+        int n = 1000;
+        ArrayList<Vertex> points = new ArrayList<>();
+        Random random = new Random(1);
+        for (int i = 0; i < n; i++)
+            points.add(new Vertex(random.nextInt(1000), random.nextInt(1000)));
+        ArrayList<Edge> ladder = ladder(n);
+        SweepLineStatus status = new SweepLineStatus();
+        status.setSweepY(n-1);
+        for (Edge edge : ladder)
+            status.add(edge);
+        int rounds = 1000;
+        long calls = (long) rounds * n;
+        System.out.println(String.format("%-30s%-20s%-20s", "predicate", "cold (bytes/call)", "warm (bytes/call)"));
+        long[] arrays = new long[2], kernel = new long[2], lookups = new long[2];
+        for (int run = 0; run < 5; run++)
+        {
+            int column = (run == 0) ? 0 : 1;
+            arrays[column] = allocated(() -> arrayPredicates(points, rounds));
+            kernel[column] = allocated(() -> kernelPredicates(points, rounds));
+            lookups[column] = allocated(() -> statusLookups(status, ladder, rounds));
+        }
+        System.out.println(String.format("%-30s%-20.2f%-20.2f", "int[] intersectsProp", (double) arrays[0] / calls, (double) arrays[1] / calls));
+        System.out.println(String.format("%-30s%-20.2f%-20.2f", "Predicates.intersectsProp", (double) kernel[0] / calls, (double) kernel[1] / calls));
+        System.out.println(String.format("%-30s%-20.2f%-20.2f", "SweepLineStatus.lower/higher", (double) lookups[0] / calls, (double) lookups[1] / calls));
+        if (kernel[1] > 0 || lookups[1] > 0)
+        {
+            System.out.println("the predicate kernel allocated on the hot path");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compares the plain long cross product against the filtered orientation test and the exact 128-bit
+     * test on its own, timing them on small coordinates where the filter always decides and counting the
+     * wrong signs of the long cross product on coordinates spanning the whole int range
+     */
+    public static void orientation()
+    {
+        int n = 1 << 20;
+        Random random = new Random(1);
+        int[] small = new int[6*n];
+        int[] large = new int[6*n];
+        for (int i = 0; i < small.length; i++)
+        {
+            small[i] = random.nextInt(2000);
+            large[i] = random.nextInt();
+        }
+        long crossTime = 0, filteredTime = 0, exactTime = 0;
+        int found = 0;
+        for (int run = 0; run < 5; run++)
+        {
+            crossTime = System.nanoTime();
+            for (int i = 0; i < small.length; i += 6)
+                found += Long.signum(Predicates.cross(small[i], small[i+1], small[i+2], small[i+3], small[i+4], small[i+5]));
+            filteredTime = System.nanoTime();
+            crossTime = filteredTime - crossTime;
+            for (int i = 0; i < small.length; i += 6)
+                found += Predicates.orientation(small[i], small[i+1], small[i+2], small[i+3], small[i+4], small[i+5]);
+            exactTime = System.nanoTime();
+            filteredTime = exactTime - filteredTime;
+            for (int i = 0; i < small.length; i += 6)
+                found += Predicates.compareProducts((long) small[i+2] - small[i], (long) small[i+5] - small[i+1],
+                        (long) small[i+3] - small[i+1], (long) small[i+4] - small[i]);
+            exactTime = System.nanoTime() - exactTime;
+        }
+        int wrong = 0;
+        for (int i = 0; i < large.length; i += 6)
+        {
+            if (Long.signum(Predicates.cross(large[i], large[i+1], large[i+2], large[i+3], large[i+4], large[i+5]))
+                    != Predicates.orientation(large[i], large[i+1], large[i+2], large[i+3], large[i+4], large[i+5]))
+                wrong++;
+        }
+        System.out.println(String.format("%-30s%-20s", "orientation", "ns/call"));
+        System.out.println(String.format("%-30s%-20.2f", "long cross product", (double) crossTime / n));
+        System.out.println(String.format("%-30s%-20.2f", "filtered", (double) filteredTime / n));
+        System.out.println(String.format("%-30s%-20.2f", "exact 128-bit", (double) exactTime / n));
+        System.out.println("wrong signs of the long cross product on full range coordinates: " + wrong + " of " + n);
+        if (found == Integer.MIN_VALUE)
+            System.out.println(found);
+    }
+
+    /**
+     * Finds the bytes the current thread allocates running a task, less what measuring takes on its own
+     * @param task the task
+     * @return the bytes allocated
+     */
+    private static long allocated(Runnable task)
+    {
+        long overhead = allocatedBytes();
+        long before = allocatedBytes();
+        overhead = before - overhead;
+        task.run();
+        long after = allocatedBytes();
+        return Math.max(0, after - before - overhead);
+    }
+
+    /**
+     * Gets the bytes the current thread has allocated so far
+     * @return the bytes allocated
+     */
+    static long allocatedBytes()
+    {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void arrayPredicates(ArrayList<Vertex> points, int rounds)
+    {
+        int found = 0;
+        for (int round = 0; round < rounds; round++)
+        {
+            for (int i = 0; i + 3 < points.size(); i++)
+            {
+                if (SimplePolygon.intersectsProp(points.get(i).getCoordsArr(), points.get(i+1).getCoordsArr(),
+                        points.get(i+2).getCoordsArr(), points.get(i+3).getCoordsArr()))
+                    found++;
+            }
+        }
+        if (found < 0)
+            System.out.println(found);
+    }
+
+    private static void kernelPredicates(ArrayList<Vertex> points, int rounds)
+    {
+        int found = 0;
+        for (int round = 0; round < rounds; round++)
+        {
+            for (int i = 0; i + 3 < points.size(); i++)
+            {
+                Vertex a = points.get(i), b = points.get(i+1), c = points.get(i+2), d = points.get(i+3);
+                if (Predicates.intersectsProp(a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY(), d.getX(), d.getY()))
+                    found++;
+            }
+        }
+        if (found < 0)
+            System.out.println(found);
+    }
+
+    private static void statusLookups(SweepLineStatus status, ArrayList<Edge> ladder, int rounds)
+    {
+        int found = 0;
+        for (int round = 0; round < rounds; round++)
+        {
+            for (Edge edge : ladder)
+            {
+                if (status.lower(edge.getStart()) != null)
+                    found++;
+                if (status.higher(edge.getStart()) != null)
+                    found++;
+            }
+        }
+        if (found < 0)
+            System.out.println(found);
+    }
+
+    /**
+     * Makes n disjoint edges whose top vertices all come before their bottom vertices, in sweep order the
+     * events are the starts of the edges and then their ends
+     * @param n the number of edges
+     * @return the edges, going down the screen
+     */
+    private static ArrayList<Edge> ladder(int n)
+    {
+        ArrayList<Edge> ladder = new ArrayList<>();
+        for (int i = 0; i < n; i++)
+            ladder.add(new Edge(new Vertex(3*i, i), new Vertex(3*i+1, n+i)));
+        return ladder;
+    }
+
+    /**
+     * Sweeps the events keeping the status in a list which is scanned for each event
+     * @param ladder the edges from ladder(n)
+     * @return the time taken in nanoseconds
+     */
+    private static long scan(ArrayList<Edge> ladder)
+    {
+        long time = System.nanoTime();
+        ArrayList<Edge> status = new ArrayList<>();
+        int found = 0;
+        for (int i = 0; i < 2*ladder.size(); i++)
+        {
+            Edge ladderEdge = ladder.get(i % ladder.size());
+            Vertex event = (i < ladder.size()) ? ladderEdge.getStart() : ladderEdge.getEnd();
+            Vertex lray = new Vertex(event.getX()-1,event.getY());
+            Vertex rray = new Vertex(event.getX()+1,event.getY());
+            Vertex lpointer = null, rpointer = null;
+            for (Edge edge : status)
+            {
+                Vertex lcandidate = edge.linearIntersection(event,lray);
+                if (lcandidate!=null&&(lpointer==null||lcandidate.getX()> lpointer.getX()))
+                    lpointer = lcandidate;
+                Vertex rcandidate = edge.linearIntersection(event,rray);
+                if (rcandidate!=null&&(rpointer==null||rcandidate.getX()<rpointer.getX()))
+                    rpointer = rcandidate;
+            }
+            found += (lpointer == null ? 0 : 1) + (rpointer == null ? 0 : 1);
+            if (i < ladder.size())
+                status.add(ladderEdge);
+            else
+                status.remove(ladderEdge);
+        }
+        time = System.nanoTime() - time;
+        if (found < 0)
+            System.out.println(found);
+        return time;
+    }
+
+    /**
+     * Sweeps the events keeping the status in a SweepLineStatus
+     * @param ladder the edges from ladder(n)
+     * @return the time taken in nanoseconds
+     */
+    private static long status(ArrayList<Edge> ladder)
+    {
+        long time = System.nanoTime();
+        SweepLineStatus status = new SweepLineStatus();
+        int found = 0;
+        for (int i = 0; i < 2*ladder.size(); i++)
+        {
+            Edge ladderEdge = ladder.get(i % ladder.size());
+            Vertex event = (i < ladder.size()) ? ladderEdge.getStart() : ladderEdge.getEnd();
+            Vertex lray = new Vertex(event.getX()-1,event.getY());
+            Vertex rray = new Vertex(event.getX()+1,event.getY());
+            status.setSweepY(event.getY());
+            Vertex lpointer = null, rpointer = null;
+            Edge left = status.lower(event);
+            while (left != null && (lpointer = left.linearIntersection(event,lray)) == null)
+                left = status.lower(left);
+            Edge right = status.higher(event);
+            while (right != null && (rpointer = right.linearIntersection(event,rray)) == null)
+                right = status.higher(right);
+            found += (lpointer == null ? 0 : 1) + (rpointer == null ? 0 : 1);
+            if (i < ladder.size())
+                status.add(ladderEdge);
+            else
+                status.remove(ladderEdge);
+        }
+        time = System.nanoTime() - time;
+        if (found < 0)
+            System.out.println(found);
+        return time;
+    }
+}
@@ -0,0 +1,428 @@
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Finds every pair of edges of a PSLG that cross, touch or overlap other than by sharing an endpoint, with a
+ * Bentley-Ottmann sweep in O((n+k) log n) for n edges and k such pairs. The sweep line goes down the screen
+ * like the trapezoidalization. Crossing points are kept as exact fractions so the order of the events and of
+ * the edges on the sweep line never depends on rounding.
+ */
+public class CrossingSweep {
+    /**
+     * Stands in the sweep line status for the point being processed, just to the left of every edge through it
+     */
+    private static final int PROBE = -1;
+    private static final ArrayList<Integer> NO_EDGES = new ArrayList<>();
+
+    private final int[] topX, topY, bottomX, bottomY;
+    private final TreeMap<Point,ArrayList<Integer>> events;
+    private final TreeSet<Integer> status;
+    private final HashSet<Long> reported;
+    private final ArrayList<Integer> upper, through, ends, inserted;
+    private Point sweep;
+    private boolean below;
+
+    /**
+     * Finds every pair of edges that meet anywhere but at an endpoint of both, or that overlap
+     * @param xs the x-coords of the vertices
+     * @param ys the y-coords of the vertices
+     * @param edgePairs the edges as consecutive pairs of vertex indices
+     * @return the pairs of edge indices as consecutive entries, the lower index first, sorted
+     */
+    public static int[] crossings(int[] xs, int[] ys, int[] edgePairs)
+    {
+        CrossingSweep sweep = new CrossingSweep(xs, ys, edgePairs);
+        sweep.run();
+        long[] pairs = new long[sweep.reported.size()];
+        int i = 0;
+        for (long pair : sweep.reported)
+            pairs[i++] = pair;
+        Arrays.sort(pairs);
+        int[] result = new int[2 * pairs.length];
+        for (i = 0; i < pairs.length; i++)
+        {
+            result[2*i] = (int) (pairs[i] >>> 32);
+            result[2*i+1] = (int) pairs[i];
+        }
+        return result;
+    }
+
+    public static int[] crossings(Pslg pslg)
+    {
+        return crossings(pslg.xs, pslg.ys, pslg.edgePairs);
+    }
+
+    /**
+     * Sets up the events of a PSLG, an edge whose endpoints are at the same point is left out
+     * @param xs the x-coords of the vertices
+     * @param ys the y-coords of the vertices
+     * @param edgePairs the edges as consecutive pairs of vertex indices
+     */
+    private CrossingSweep(int[] xs, int[] ys, int[] edgePairs)
+    {
+        int edgeCount = edgePairs.length / 2;
+        topX = new int[edgeCount];
+        topY = new int[edgeCount];
+        bottomX = new int[edgeCount];
+        bottomY = new int[edgeCount];
+        events = new TreeMap<>();
+        status = new TreeSet<>(this::compare);
+        reported = new HashSet<>();
+        upper = new ArrayList<>();
+        through = new ArrayList<>();
+        ends = new ArrayList<>();
+        inserted = new ArrayList<>();
+        for (int i = 0; i < edgeCount; i++)
+        {
+            int a = edgePairs[2*i], b = edgePairs[2*i+1];
+            if (ys[a] > ys[b] || (ys[a] == ys[b] && xs[a] > xs[b]))
+            {
+                int temp = a;
+                a = b;
+                b = temp;
+            }
+            topX[i] = xs[a];
+            topY[i] = ys[a];
+            bottomX[i] = xs[b];
+            bottomY[i] = ys[b];
+            if (xs[a] != xs[b] || ys[a] != ys[b])
+                events.computeIfAbsent(new Point(xs[a], ys[a]), k -> new ArrayList<>()).add(i);
+        }
+        for (int i = 0; i < edgeCount; i++)
+        {
+            if (topX[i] != bottomX[i] || topY[i] != bottomY[i])
+                events.putIfAbsent(new Point(bottomX[i], bottomY[i]), NO_EDGES);
+        }
+    }
+
+    private void run()
+    {
+        while (!events.isEmpty())
+        {
+            Map.Entry<Point,ArrayList<Integer>> event = events.pollFirstEntry();
+            handle(event.getKey(), event.getValue());
+        }
+    }
+
+    /**
+     * Processes the edges starting at, ending at and passing through an event point, then moves the
+     * sweep line past it
+     * @param point the event point
+     * @param starting the edges whose top is the point
+     */
+    private void handle(Point point, ArrayList<Integer> starting)
+    {
+        sweep = point;
+        below = false;
+        upper.clear();
+        through.clear();
+        ends.clear();
+        inserted.clear();
+        upper.addAll(starting);
+        for (Integer s = status.ceiling(PROBE); s != null && compareToSweep(s) == 0; s = status.higher(s))
+            through.add(s);
+
+        ends.addAll(upper);
+        for (int s : through)
+        {
+            if (point.isEndOf(bottomX[s], bottomY[s]))
+                ends.add(s);
+            else
+                inserted.add(s);
+        }
+        report();
+
+        for (int s : through)
+            status.remove(s);
+        below = true;
+        inserted.addAll(upper);
+        status.addAll(inserted);
+        if (inserted.isEmpty())
+        {
+            check(status.lower(PROBE), status.ceiling(PROBE));
+            return;
+        }
+        Integer leftmost = status.ceiling(PROBE);
+        Integer rightmost = leftmost;
+        for (int i = 1; i < inserted.size(); i++)
+            rightmost = status.higher(rightmost);
+        check(status.lower(leftmost), leftmost);
+        check(rightmost, status.higher(rightmost));
+    }
+
+    /**
+     * Reports the pairs of edges meeting at the sweep point. Every edge through its interior meets every
+     * other edge there, while of the edges ending there only those leaving in the same direction overlap.
+     */
+    private void report()
+    {
+        for (int i = 0; i < inserted.size(); i++)
+        {
+            for (int j = i + 1; j < inserted.size(); j++)
+                report(inserted.get(i), inserted.get(j));
+            for (int s : ends)
+                report(inserted.get(i), s);
+        }
+        if (ends.size() < 2)
+            return;
+        Collections.sort(ends, this::compareDirections);
+        int run = 0;
+        for (int i = 1; i <= ends.size(); i++)
+        {
+            if (i < ends.size() && compareDirections(ends.get(run), ends.get(i)) == 0)
+                continue;
+            for (int j = run; j < i; j++)
+            {
+                for (int k = j + 1; k < i; k++)
+                    report(ends.get(j), ends.get(k));
+            }
+            run = i;
+        }
+    }
+
+    private void report(int a, int b)
+    {
+        reported.add(((long) Math.min(a, b) << 32) | Math.max(a, b));
+    }
+
+    /**
+     * Adds the point where two neighbouring edges cross as an event, if it is past the sweep point. Edges
+     * that only share an endpoint or lie on the same line need no new event, the point they meet at first
+     * is already the endpoint of one of them.
+     * @param a the left edge, may be null
+     * @param b the right edge, may be null
+     */
+    private void check(Integer a, Integer b)
+    {
+        if (a == null || b == null)
+            return;
+        if (!Predicates.intersectsProp(topX[a], topY[a], bottomX[a], bottomY[a], topX[b], topY[b], bottomX[b], bottomY[b]))
+            return;
+        if ((topX[a] == topX[b] && topY[a] == topY[b]) || (topX[a] == bottomX[b] && topY[a] == bottomY[b])
+                || (bottomX[a] == topX[b] && bottomY[a] == topY[b]) || (bottomX[a] == bottomX[b] && bottomY[a] == bottomY[b]))
+            return;
+        if (Predicates.collinear(topX[a], topY[a], bottomX[a], bottomY[a], topX[b], topY[b])
+                && Predicates.collinear(topX[a], topY[a], bottomX[a], bottomY[a], bottomX[b], bottomY[b]))
+            return;
+        BigInteger adx = BigInteger.valueOf((long) bottomX[a] - topX[a]), ady = BigInteger.valueOf((long) bottomY[a] - topY[a]);
+        BigInteger bdx = BigInteger.valueOf((long) bottomX[b] - topX[b]), bdy = BigInteger.valueOf((long) bottomY[b] - topY[b]);
+        BigInteger det = adx.multiply(bdy).subtract(ady.multiply(bdx));
+        BigInteger t = BigInteger.valueOf((long) topX[b] - topX[a]).multiply(bdy)
+                .subtract(BigInteger.valueOf((long) topY[b] - topY[a]).multiply(bdx));
+        BigInteger x = BigInteger.valueOf(topX[a]).multiply(det).add(t.multiply(adx));
+        BigInteger y = BigInteger.valueOf(topY[a]).multiply(det).add(t.multiply(ady));
+        Point crossing = Point.of(x, y, det);
+        if (crossing.compareTo(sweep) > 0)
+            events.putIfAbsent(crossing, NO_EDGES);
+    }
+
+    /**
+     * Orders the edges on the sweep line by where they cross it. Edges crossing it at the same point are
+     * ordered as they are just below that point once the sweep has reached it and as just above before,
+     * which keeps a horizontal edge, taken to cross at the sweep point, after the others once it is added.
+     * @param a an edge or PROBE
+     * @param b an edge or PROBE
+     * @return negative if a is to the left of b
+     */
+    private int compare(Integer a, Integer b)
+    {
+        if (a.intValue() == b.intValue())
+            return 0;
+        if (a == PROBE)
+            return (compareToSweep(b) >= 0) ? -1 : 1;
+        if (b == PROBE)
+            return (compareToSweep(a) >= 0) ? 1 : -1;
+        int comparison = compareCrossings(a, b);
+        if (comparison != 0)
+            return comparison;
+        comparison = compareSlopes(a, b);
+        if (comparison != 0)
+        {
+            int passed = compareToSweep(a);
+            return (passed < 0 || (passed == 0 && below)) ? comparison : -comparison;
+        }
+        return Integer.compare(a, b);
+    }
+
+    /**
+     * Compares the slopes of two edges as dx/dy, a horizontal edge being steeper than any other
+     * @return negative if a leans less to the right going down than b
+     */
+    private int compareSlopes(int a, int b)
+    {
+        long adx = (long) bottomX[a] - topX[a], ady = (long) bottomY[a] - topY[a];
+        long bdx = (long) bottomX[b] - topX[b], bdy = (long) bottomY[b] - topY[b];
+        if (ady == 0 || bdy == 0)
+            return Boolean.compare(ady == 0, bdy == 0);
+        return Predicates.compareProducts(adx, bdy, bdx, ady);
+    }
+
+    /**
+     * Orders the edges with an endpoint at the sweep point by the direction they leave it in
+     * @return 0 if they leave in the same direction and so overlap
+     */
+    private int compareDirections(int a, int b)
+    {
+        int px = (int) sweep.x, py = (int) sweep.y;
+        int ax = (topX[a] == px && topY[a] == py) ? bottomX[a] : topX[a];
+        int ay = (topX[a] == px && topY[a] == py) ? bottomY[a] : topY[a];
+        int bx = (topX[b] == px && topY[b] == py) ? bottomX[b] : topX[b];
+        int by = (topX[b] == px && topY[b] == py) ? bottomY[b] : topY[b];
+        int halfA = (ay > py || (ay == py && ax > px)) ? 0 : 1;
+        int halfB = (by > py || (by == py && bx > px)) ? 0 : 1;
+        if (halfA != halfB)
+            return Integer.compare(halfA, halfB);
+        return Predicates.orientation(px, py, bx, by, ax, ay);
+    }
+
+    /**
+     * Compares where two edges cross the sweep line, first in floating point and exactly if they are too close
+     * @return negative if a crosses to the left of b
+     */
+    private int compareCrossings(int a, int b)
+    {
+        double difference = approximateX(a) - approximateX(b);
+        if (Math.abs(difference) > error(a) + error(b))
+            return (difference < 0) ? -1 : 1;
+        BigInteger[] xa = exactX(a), xb = exactX(b);
+        return xa[0].multiply(xb[1]).compareTo(xb[0].multiply(xa[1]));
+    }
+
+    /**
+     * Compares where an edge crosses the sweep line with the sweep point
+     * @return negative if the edge crosses to the left of the sweep point, 0 if it passes through it
+     */
+    private int compareToSweep(int s)
+    {
+        double difference = approximateX(s) - sweep.approximateX;
+        if (Math.abs(difference) > error(s) + sweep.error)
+            return (difference < 0) ? -1 : 1;
+        BigInteger[] x = exactX(s);
+        return x[0].multiply(sweep.denominator()).compareTo(sweep.numeratorX().multiply(x[1]));
+    }
+
+    /**
+     * Finds roughly where an edge crosses the sweep line, a horizontal edge is taken to cross at the sweep point
+     */
+    private double approximateX(int s)
+    {
+        if (topY[s] == bottomY[s])
+            return sweep.approximateX;
+        return topX[s] + (sweep.approximateY - topY[s]) * ((double) bottomX[s] - topX[s]) / ((double) bottomY[s] - topY[s]);
+    }
+
+    /**
+     * Bounds the rounding error of approximateX generously
+     */
+    private double error(int s)
+    {
+        if (topY[s] == bottomY[s])
+            return sweep.error;
+        double slope = Math.abs(((double) bottomX[s] - topX[s]) / ((double) bottomY[s] - topY[s]));
+        return 0x1p-45 * (Math.abs((double) topX[s]) + (Math.abs(sweep.approximateY) + Math.abs((double) topY[s])) * slope);
+    }
+
+    /**
+     * Finds exactly where an edge crosses the sweep line
+     * @return the x-coord as a numerator and a positive denominator
+     */
+    private BigInteger[] exactX(int s)
+    {
+        if (topY[s] == bottomY[s])
+            return new BigInteger[] {sweep.numeratorX(), sweep.denominator()};
+        BigInteger dx = BigInteger.valueOf((long) bottomX[s] - topX[s]);
+        BigInteger dy = BigInteger.valueOf((long) bottomY[s] - topY[s]);
+        BigInteger d = sweep.denominator();
+        BigInteger above = sweep.numeratorY().subtract(BigInteger.valueOf(topY[s]).multiply(d));
+        BigInteger numerator = BigInteger.valueOf(topX[s]).multiply(dy).multiply(d).add(above.multiply(dx));
+        return new BigInteger[] {numerator, dy.multiply(d)};
+    }
+
+    /**
+     * An event point, either a vertex with int coords or a crossing with coords x/d and y/d, ordered by
+     * y-coord and then x-coord
+     */
+    private static final class Point implements Comparable<Point> {
+        final long x, y;
+        final BigInteger numeratorX, numeratorY, denominator;
+        final double approximateX, approximateY, error;
+
+        Point(long x, long y)
+        {
+            this.x = x;
+            this.y = y;
+            numeratorX = numeratorY = denominator = null;
+            approximateX = x;
+            approximateY = y;
+            error = 0;
+        }
+
+        private Point(BigInteger x, BigInteger y, BigInteger d)
+        {
+            this.x = this.y = 0;
+            numeratorX = x;
+            numeratorY = y;
+            denominator = d;
+            approximateX = x.doubleValue() / d.doubleValue();
+            approximateY = y.doubleValue() / d.doubleValue();
+            error = 0x1p-50 * Math.abs(approximateX);
+        }
+
+        /**
+         * Makes the point x/d, y/d in lowest terms, with int coords if d divides both
+         */
+        static Point of(BigInteger x, BigInteger y, BigInteger d)
+        {
+            if (d.signum() < 0)
+            {
+                x = x.negate();
+                y = y.negate();
+                d = d.negate();
+            }
+            BigInteger gcd = x.gcd(y).gcd(d);
+            x = x.divide(gcd);
+            y = y.divide(gcd);
+            d = d.divide(gcd);
+            if (d.equals(BigInteger.ONE))
+                return new Point(x.longValueExact(), y.longValueExact());
+            return new Point(x, y, d);
+        }
+
+        boolean isEndOf(int px, int py)
+        {
+            return denominator == null && x == px && y == py;
+        }
+
+        BigInteger numeratorX()
+        {
+            return (denominator == null) ? BigInteger.valueOf(x) : numeratorX;
+        }
+
+        BigInteger numeratorY()
+        {
+            return (denominator == null) ? BigInteger.valueOf(y) : numeratorY;
+        }
+
+        BigInteger denominator()
+        {
+            return (denominator == null) ? BigInteger.ONE : denominator;
+        }
+
+        @Override
+        public int compareTo(Point other)
+        {
+            if (denominator == null && other.denominator == null)
+                return (y != other.y) ? Long.compare(y, other.y) : Long.compare(x, other.x);
+            int comparison = numeratorY().multiply(other.denominator()).compareTo(other.numeratorY().multiply(denominator()));
+            if (comparison != 0)
+                return comparison;
+            return numeratorX().multiply(other.denominator()).compareTo(other.numeratorX().multiply(denominator()));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+import java.util.Arrays;
+
+/**
+ * Turns a triangulation into the constrained Delaunay triangulation of its constraint edges by Lawson flips.
+ * An edge is flipped whenever the vertex across it lies inside the circumcircle of the triangle on its other
+ * side, until no edge is, which leaves the triangles as fat as the constraints allow. Edges of the PSLG are
+ * never flipped, so the triangulation still has every one of them.
+ * <p>
+ * The triangles are consecutive triples of vertex indices and side i of triangle t, from its vertex i to
+ * vertex i+1, is side 3t+i. The side across each side is held beside the triangles, so testing or flipping
+ * an edge finds its neighbours in O(1). The sides to test wait on a stack, each flip pushing the four sides
+ * around it; Lawson flips can take O(n^2) at worst but take about one flip a triangle on typical inputs.
+ */
+public final class DelaunayFlips {
+    private DelaunayFlips()
+    {
+    }
+
+    /**
+     * Flips the triangles found by Triangulator.triangulate(xs, ys, edgePairs) to constrained Delaunay in place
+     * @param xs the x-coords of the vertices
+     * @param ys the y-coords of the vertices
+     * @param edgePairs the edges as consecutive pairs of vertex indices, which are never flipped
+     * @param triangles the triangles as consecutive triples of vertex indices, xs.length to xs.length+3 being
+     * the corners of Triangulator.frame(xs, ys)
+     * @return the number of flips made
+     */
+    public static int flip(int[] xs, int[] ys, int[] edgePairs, int[] triangles)
+    {
+        int[][] coords = Triangulator.withFrame(xs, ys);
+        return flipTriangles(coords[0], coords[1], triangles, edgePairs);
+    }
+
+    /**
+     * Flips a triangulation to constrained Delaunay in place, turning every triangle counterclockwise first
+     * @param xs the x-coords of every vertex the triangles use
+     * @param ys the y-coords of every vertex the triangles use
+     * @param triangles the triangles as consecutive triples of indices into xs and ys, none of them flat
+     * @param constraints the edges never to flip as consecutive pairs of indices
+     * @return the number of flips made
+     */
+    static int flipTriangles(int[] xs, int[] ys, int[] triangles, int[] constraints)
+    {
+        TriangleMesh.orient(xs, ys, triangles);
+        EdgeRegistry fixed = new EdgeRegistry(constraints.length / 2);
+        for (int i = 0; i + 1 < constraints.length; i += 2)
+            fixed.put(constraints[i], constraints[i+1], i / 2);
+        int[] across = TriangleMesh.acrossSides(triangles);
+        int[] stack = new int[Math.max(16, triangles.length / 2)];
+        int top = 0;
+        for (int s = 0; s < triangles.length; s++)
+        {
+            if (across[s] > s)
+                stack[top++] = s;
+        }
+        int flips = 0;
+        while (top > 0)
+        {
+            int s = stack[--top];
+            int o = across[s];
+            if (o == -1 || fixed.get(triangles[s], triangles[next(s)]) != EdgeRegistry.MISSING)
+                continue;
+            int a = triangles[s], b = triangles[next(s)], c = triangles[prev(s)], d = triangles[prev(o)];
+            if (Predicates.inCircle(xs[a], ys[a], xs[b], ys[b], xs[c], ys[c], xs[d], ys[d]) <= 0)
+                continue;
+            int t = s - s % 3, u = o - o % 3;
+            int bc = across[next(s)], ca = across[prev(s)], ad = across[next(o)], db = across[prev(o)];
+            triangles[t] = c;
+            triangles[t+1] = a;
+            triangles[t+2] = d;
+            triangles[u] = d;
+            triangles[u+1] = b;
+            triangles[u+2] = c;
+            link(across, t, ca);
+            link(across, t+1, ad);
+            link(across, u, db);
+            link(across, u+1, bc);
+            link(across, t+2, u+2);
+            if (top + 4 > stack.length)
+                stack = Arrays.copyOf(stack, 2 * stack.length);
+            stack[top++] = t;
+            stack[top++] = t+1;
+            stack[top++] = u;
+            stack[top++] = u+1;
+            flips++;
+        }
+        return flips;
+    }
+
+    /**
+     * Makes two sides across from each other
+     * @param across the side across each side
+     * @param s a side
+     * @param other the side across it, or -1 if it is on the hull
+     */
+    private static void link(int[] across, int s, int other)
+    {
+        across[s] = other;
+        if (other != -1)
+            across[other] = s;
+    }
+
+    private static int next(int s)
+    {
+        return (s % 3 == 2) ? s - 2 : s + 1;
+    }
+
+    private static int prev(int s)
+    {
+        return (s % 3 == 0) ? s + 2 : s - 1;
+    }
+}
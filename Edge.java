@@ -1,13 +1,13 @@
 import java.awt.*;
-import java.util.Objects;
 
 public class Edge {
     private Vertex start;
     private Vertex end;
-    private final int[] center;
+    private int halfEdge = -1;
 
     /**
-     * Constructs an edge from two vertices
+     * Constructs an edge from two vertices, the vertices know nothing of their edges, the topology is
+     * kept in a HalfEdgeMesh
      * @param start the first vertex
      * @param end the second vertex
      */
@@ -15,21 +15,6 @@ public class Edge {
     {
         this.start = start;
         this.end=end;
-        start.addEdge(this);
-        end.addEdge(this);
-        center = new int[]{(start.getX()+ end.getX())/2,(start.getY()+ end.getY())/2};
-    }
-    /**
-     * Constructs an edge from two vertices, but without adding itself to their edgelists
-     * @param start the first vertex
-     * @param end the second vertex
-     * @param trapezoidal just distingushes the method signature
-     */
-    public Edge(Vertex start, Vertex end,boolean trapezoidal)
-    {
-        this.start = start;
-        this.end=end;
-        center = new int[]{(start.getX()+ end.getX())/2,(start.getY()+ end.getY())/2};
     }
 
     /**
@@ -40,7 +25,7 @@ public class Edge {
      */
     public static Edge polygonalEdge(Vertex start, Vertex end)
     {
-        Edge edge = new Edge(start,end,false);
+        Edge edge = new Edge(start,end);
         start.setNext(end);
         end.setPrev(start);
         return edge;
@@ -71,8 +56,16 @@ public class Edge {
         return start;
     }
 
-    public int[] getCenter() {
-        return center;
+    /**
+     * Gets the half-edge from start to end in the mesh of the current sweep
+     * @return the index of the half-edge, or -1 if the edge is not in a mesh
+     */
+    public int getHalfEdge() {
+        return halfEdge;
+    }
+
+    public void setHalfEdge(int halfEdge) {
+        this.halfEdge = halfEdge;
     }
 
     /**
@@ -85,7 +78,8 @@ public class Edge {
         end = temp;
     }
     /**
-     * Finds an intersection between a ray from point1 to point2 and the edge
+     * Finds an intersection between a ray from point1 to point2 and the edge, solving the 2x2 system
+     * point2 + t*(point1-point2) = end + s*(start-end) by Cramer's rule
      * @param point1 the origin of the ray
      * @param point2 point determining ray direction
      * @return the point of intersection
@@ -100,17 +94,18 @@ public class Edge {
         if (contains(point1)) {
             return null;
         }
-        if (SimplePolygon.left(point1.getCoordsArr(),point2.getCoordsArr(),start.getCoordsArr()) == SimplePolygon.left(point1.getCoordsArr(),point2.getCoordsArr(),end.getCoordsArr()))
+        if (Predicates.left(point1.getX(),point1.getY(),point2.getX(),point2.getY(),start.getX(),start.getY()) == Predicates.left(point1.getX(),point1.getY(),point2.getX(),point2.getY(),end.getX(),end.getY()))
             return null;
-        double[] diff = subtract(point1.getCoordsDoubleArr(),point2.getCoordsDoubleArr());
-        double[][] matrix = {{diff[0],start.getX()-end.getX()},{diff[1],start.getY()-end.getY()}};
-        double[][] start = {{-point2.getX()+ end.getX()},{-point2.getY()+ end.getY()}};
-        double[][] intersectMult = matrixMultiply(inverse(matrix),start);
-        if (intersectMult[0][0]>0)
+        long diffX = (long) point1.getX() - point2.getX(), diffY = (long) point1.getY() - point2.getY();
+        long edgeX = (long) start.getX() - end.getX(), edgeY = (long) start.getY() - end.getY();
+        long toEndX = (long) end.getX() - point2.getX(), toEndY = (long) end.getY() - point2.getY();
+        double det = (double) diffX * edgeY - (double) diffY * edgeX;
+        if (det == 0)
+            return null;
+        double t = ((double) toEndX * edgeY - (double) toEndY * edgeX) / det;
+        if (t > 0)
             return null;
-        double[] intersect = add(point2.getCoordsDoubleArr(), scalarMult(intersectMult[0][0],diff));
-        int[] temp = {(int)intersect[0],(int)intersect[1]};
-        return new Vertex(temp[0],temp[1]);
+        return new Vertex((int) (point2.getX() + t * diffX), (int) (point2.getY() + t * diffY));
     }
 
     @Override
@@ -123,14 +118,21 @@ public class Edge {
                 end.equals(edge.start));
     }
 
+    /**
+     * Hashes the edge the same whichever way round it goes, like equals
+     * @return the hash code
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(start, end);
+        return start.hashCode() + end.hashCode();
     }
 
     @Override
     public String toString() {
-        return ""+(Main.gpanel.edges.indexOf(this)+1);
+        return "Edge{" +
+                "start=" + start +
+                ", end=" + end +
+                '}';
     }
     /**
      * Adds two 2-d vectors together
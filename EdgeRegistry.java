@@ -0,0 +1,194 @@
+import java.util.Arrays;
+
+/**
+ * Maps undirected edges to int values in O(1), like Edge.equals an edge is known by the coords of its two
+ * vertices in either order. The key of an edge is the packed coords of its vertices, the smaller first,
+ * held in an open-addressing table of primitive arrays with linear probing.
+ */
+public class EdgeRegistry {
+    /**
+     * Returned when an edge is not in the registry, and marks a free slot
+     */
+    public static final int MISSING = -1;
+    private long[] firsts, seconds;
+    private int[] values;
+    private int size;
+
+    public EdgeRegistry()
+    {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty registry with room for some edges before its table has to grow
+     * @param expected the expected number of edges
+     */
+    public EdgeRegistry(int expected)
+    {
+        int capacity = Integer.highestOneBit(Math.max(8, 2 * expected - 1)) << 1;
+        firsts = new long[capacity];
+        seconds = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+    }
+
+    /**
+     * Packs the coords of a vertex into one long, two vertices get the same key exactly when they are equal
+     * @param vertex the vertex
+     * @return the key
+     */
+    public static long key(Vertex vertex)
+    {
+        return key(vertex.getX(), vertex.getY());
+    }
+
+    public static long key(int x, int y)
+    {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    /**
+     * Gets the value of the edge between two vertices
+     * @param a a vertex
+     * @param b the other vertex
+     * @return the value, or MISSING if the edge is not in the registry
+     */
+    public int get(Vertex a, Vertex b)
+    {
+        return get(key(a), key(b));
+    }
+
+    /**
+     * Gets the value of the edge between two vertices given by their keys
+     * @param p the key of a vertex
+     * @param q the key of the other vertex
+     * @return the value, or MISSING if the edge is not in the registry
+     */
+    public int get(long p, long q)
+    {
+        int slot = find(Math.min(p, q), Math.max(p, q));
+        return values[slot];
+    }
+
+    public boolean contains(Vertex a, Vertex b)
+    {
+        return get(a, b) != MISSING;
+    }
+
+    /**
+     * Sets the value of the edge between two vertices
+     * @param a a vertex
+     * @param b the other vertex
+     * @param value the value, not negative
+     * @return the old value, or MISSING if the edge was not in the registry
+     */
+    public int put(Vertex a, Vertex b, int value)
+    {
+        return put(key(a), key(b), value);
+    }
+
+    public int put(long p, long q, int value)
+    {
+        long first = Math.min(p, q), second = Math.max(p, q);
+        int slot = find(first, second);
+        int old = values[slot];
+        values[slot] = value;
+        if (old == MISSING)
+        {
+            firsts[slot] = first;
+            seconds[slot] = second;
+            if (2 * ++size > values.length)
+                grow();
+        }
+        return old;
+    }
+
+    /**
+     * Removes the edge between two vertices, moving back the entries after it so no tombstone is left
+     * @param a a vertex
+     * @param b the other vertex
+     * @return the value it had, or MISSING if the edge was not in the registry
+     */
+    public int remove(Vertex a, Vertex b)
+    {
+        return remove(key(a), key(b));
+    }
+
+    public int remove(long p, long q)
+    {
+        int slot = find(Math.min(p, q), Math.max(p, q));
+        int old = values[slot];
+        if (old == MISSING)
+            return MISSING;
+        int mask = values.length - 1;
+        int j = slot;
+        while (true)
+        {
+            j = (j + 1) & mask;
+            if (values[j] == MISSING)
+                break;
+            int home = hash(firsts[j], seconds[j]) & mask;
+            if ((slot <= j) ? (slot < home && home <= j) : (slot < home || home <= j))
+                continue;
+            firsts[slot] = firsts[j];
+            seconds[slot] = seconds[j];
+            values[slot] = values[j];
+            slot = j;
+        }
+        values[slot] = MISSING;
+        size--;
+        return old;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(values, MISSING);
+        size = 0;
+    }
+
+    /**
+     * Finds the slot holding a key, or the free slot where it would go
+     */
+    private int find(long first, long second)
+    {
+        int mask = values.length - 1;
+        int slot = hash(first, second) & mask;
+        while (values[slot] != MISSING && (firsts[slot] != first || seconds[slot] != second))
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void grow()
+    {
+        long[] oldFirsts = firsts, oldSeconds = seconds;
+        int[] oldValues = values;
+        firsts = new long[2 * oldValues.length];
+        seconds = new long[firsts.length];
+        values = new int[firsts.length];
+        Arrays.fill(values, MISSING);
+        for (int i = 0; i < oldValues.length; i++)
+        {
+            if (oldValues[i] == MISSING)
+                continue;
+            int slot = find(oldFirsts[i], oldSeconds[i]);
+            firsts[slot] = oldFirsts[i];
+            seconds[slot] = oldSeconds[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    /**
+     * Mixes the two halves of a key so that nearby coords spread over the table
+     */
+    private static int hash(long first, long second)
+    {
+        long h = first * 0x9E3779B97F4A7C15L + second;
+        h = (h ^ (h >>> 31)) * 0xBF58476D1CE4E5B9L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,150 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Orders the events of the sweep by y, then x, then index, a total order so that reruns on the same input
+ * process the events the same way. SweepLineStatus breaks its ties by the edges' coords as well, never by
+ * identity, so a rerun gives the same triangles in the same order. The order is found by sorting packed long
+ * keys rather than objects: first (y, index) keys, then (x, index) keys within each run of equal y, each of
+ * which fits in 63 bits whatever the coords, where a single (y, x, index) key would not. Small inputs are
+ * sorted with an LSD radix sort over the bits the keys use and large ones with Arrays.parallelSort, which on
+ * a single core is only a sequential sort, so the radix sort is used there for every size.
+ */
+public class EventQueue {
+    /**
+     * The most keys radix sorted when there are cores to spare, above this parallelSort is faster
+     */
+    static final int RADIX_LIMIT = 1 << 16;
+    /**
+     * The fewest keys radix sorted, fewer such as the runs of equal y are not worth counting digits for
+     */
+    static final int RADIX_MINIMUM = 64;
+    private static final int DIGIT = 11;
+    private static final int MASK = (1 << DIGIT) - 1;
+
+    private EventQueue()
+    {
+    }
+
+    /**
+     * Finds the order the sweep processes vertices in
+     * @param xs the x-coords of the vertices
+     * @param ys the y-coords of the vertices
+     * @return the indices of the vertices in increasing (y, x, index) order
+     */
+    public static int[] order(int[] xs, int[] ys)
+    {
+        int n = xs.length;
+        int[] order = new int[n];
+        if (n == 0)
+            return order;
+        int indexBits = bits(n - 1);
+        long indexMask = (1L << indexBits) - 1;
+        long[] keys = new long[n];
+        int minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+        for (int y : ys)
+        {
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+        for (int i = 0; i < n; i++)
+            keys[i] = ((long) ys[i] - minY) << indexBits | i;
+        sort(keys, bits((long) maxY - minY) + indexBits);
+        for (int i = 0; i < n; i++)
+            order[i] = (int) (keys[i] & indexMask);
+        for (int start = 0, end; start < n; start = end)
+        {
+            long y = keys[start] >>> indexBits;
+            end = start + 1;
+            while (end < n && keys[end] >>> indexBits == y)
+                end++;
+            if (end - start > 1)
+                sortRun(xs, order, start, end, indexBits);
+        }
+        return order;
+    }
+
+    /**
+     * Sorts a run of vertices with the same y-coord by (x, index)
+     */
+    private static void sortRun(int[] xs, int[] order, int start, int end, int indexBits)
+    {
+        int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE;
+        for (int k = start; k < end; k++)
+        {
+            minX = Math.min(minX, xs[order[k]]);
+            maxX = Math.max(maxX, xs[order[k]]);
+        }
+        long[] keys = new long[end - start];
+        for (int k = start; k < end; k++)
+            keys[k - start] = ((long) xs[order[k]] - minX) << indexBits | order[k];
+        sort(keys, bits((long) maxX - minX) + indexBits);
+        long indexMask = (1L << indexBits) - 1;
+        for (int k = start; k < end; k++)
+            order[k] = (int) (keys[k - start] & indexMask);
+    }
+
+    /**
+     * Sorts non-negative keys, with a radix sort unless there are very few of them or there are many and
+     * cores for parallelSort to use
+     * @param keys the keys
+     * @param bits the number of low bits the keys use
+     */
+    static void sort(long[] keys, int bits)
+    {
+        if (keys.length < RADIX_MINIMUM)
+            Arrays.sort(keys);
+        else if (keys.length > RADIX_LIMIT && ForkJoinPool.getCommonPoolParallelism() > 1)
+            Arrays.parallelSort(keys);
+        else
+            radixSort(keys, bits);
+    }
+
+    /**
+     * Sorts non-negative keys with an LSD radix sort over their low bits, DIGIT bits at a time. The counts of
+     * every digit are taken in one pass first, and the digits all the keys share are skipped.
+     * @param keys the keys
+     * @param bits the number of low bits the keys use
+     */
+    static void radixSort(long[] keys, int bits)
+    {
+        if (keys.length == 0)
+            return;
+        int digits = (bits + DIGIT - 1) / DIGIT;
+        int[][] counts = new int[digits][1 << DIGIT];
+        for (long key : keys)
+        {
+            for (int d = 0; d < digits; d++)
+                counts[d][(int) (key >>> (d * DIGIT)) & MASK]++;
+        }
+        long[] from = keys, to = new long[keys.length];
+        for (int d = 0; d < digits; d++)
+        {
+            int shift = d * DIGIT;
+            int[] count = counts[d];
+            if (count[(int) (keys[0] >>> shift) & MASK] == keys.length)
+                continue;
+            for (int digit = 0, total = 0; digit < count.length; digit++)
+            {
+                int c = count[digit];
+                count[digit] = total;
+                total += c;
+            }
+            for (long key : from)
+                to[count[(int) (key >>> shift) & MASK]++] = key;
+            long[] swap = from;
+            from = to;
+            to = swap;
+        }
+        if (from != keys)
+            System.arraycopy(from, 0, keys, 0, keys.length);
+    }
+
+    /**
+     * Counts the bits needed to write a non-negative number
+     */
+    private static int bits(long value)
+    {
+        return 64 - Long.numberOfLeadingZeros(value);
+    }
+}
@@ -1,22 +1,43 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 /**
  * Shows the left side of the screen with the polygon
  */
 public class GraphPanel extends JPanel implements MouseListener, KeyListener, MouseMotionListener {
-    ArrayList<Vertex> vertices;
-    ArrayList<Edge> edges;
-    static Vertex ghostStart,ghostEnd;
-    Vertex[] corners;
-    ArrayList<Edge> sweepLineStatus;
-    ArrayList<Edge> trapezoidalization;
-    ArrayList<SimplePolygon> faces;
-    int sweepEvent;
-    ArrayList<String> tableRows;
+    /**
+     * The parts of the drawing that are cached in off-screen images, painted in this order
+     */
+    enum Layer {PSLG, FACES, LIVE, SWEEP}
+    /**
+     * The colours of a vertex before and after it is part of a mountain, the style is kept here rather than
+     * in each Vertex
+     */
+    static final Color VERTEX = new Color(200,100,100), MOUNTAIN_VERTEX = new Color(170,170,170);
+    Triangulator triangulator;
+    /**
+     * Indexes the vertices the user has drawn for hit testing, it has to be kept in step with triangulator.vertices
+     */
+    VertexGrid grid;
+    /**
+     * Triangulates the PSLG while it is drawn, repairing only the triangles each edit touches,
+     * null unless switched on with the L key
+     */
+    LiveTriangulation live;
+    private final EnumMap<Layer,BufferedImage> layers;
+    /**
+     * The layers whose images are out of date and are drawn again at the next paint
+     */
+    private final EnumSet<Layer> dirty;
+    Vertex ghostStart,ghostEnd;
     public GraphPanel()
     {
         setBackground(Color.white);
@@ -24,180 +45,75 @@ public class GraphPanel extends JPanel implements MouseListener, KeyListener, Mo
         addMouseMotionListener(this);
         setFocusable(true);
         addKeyListener(this);
-        vertices = new ArrayList<>();
-        edges = new ArrayList<>();
+        triangulator = new Triangulator();
+        grid = new VertexGrid(32);
+        layers = new EnumMap<>(Layer.class);
+        dirty = EnumSet.allOf(Layer.class);
         ghostStart = new Vertex(-5000,-5000);
         ghostEnd = new Vertex(5000,-5000);
-        faces = new ArrayList<>();
         repaint();
     }
 
     /**
-     * Sets up the points for the Sweep Algorithm to be applied to them
+     * Process the next event in the Sweep Algorithm, framing the PSLG with the edges of the panel
      */
-    public void setUpSweep()
+    public void sweepNext()
     {
-        sweepLineStatus = new ArrayList<>();
-        corners = new Vertex[] {
-                new Vertex(0,0),
-                new Vertex(this.getWidth(),0),
-                new Vertex(0,this.getHeight()),
-                new Vertex(this.getWidth(),this.getHeight())
-        };
-        vertices.sort(Comparator.comparingInt(Vertex::getY));
-        trapezoidalization = new ArrayList<>();
-        tableRows = new ArrayList<>();
-        tableRows.add(String.format("%-20s%-25s%-20s","Event","SLS","Pointers"));
-        sweepEvent = 0;
-        faces = new ArrayList<>();
+        triangulator.setFrame(0,0,getWidth(),getHeight());
+        triangulator.sweepNext();
+        markDirty(Layer.PSLG, Layer.SWEEP);
     }
 
     /**
-     * Process the next event in the Sweep Algorithm
+     * Resets the PSLG to what the user inputted
      */
-    public void sweepNext()
+    public void reset()
     {
-        if (sweepLineStatus == null||sweepEvent>=vertices.size())
-            setUpSweep();
-        Vertex event = vertices.get(sweepEvent++);
-        Vertex lray = new Vertex(event.getX()-1,event.getY());
-        Vertex rray = new Vertex(event.getX()+1,event.getY());
-        int rIndex = -1;
-        int lIndex = -1;
-        Vertex lpointer = new Vertex(0,event.getY());
-        Vertex rpointer = new Vertex(corners[1].getX(),event.getY());
-        for (Edge edge : sweepLineStatus)
-        {
-            Vertex lcandidate = edge.linearIntersection(event,lray);
-            if (lcandidate!=null&&lcandidate.getX()> lpointer.getX())
-            {
-                lpointer = lcandidate;
-                lIndex = edges.indexOf(edge);
-            }
-            Vertex rcandidate = edge.linearIntersection(event,rray);
-            if (rcandidate!=null&&rcandidate.getX()<rpointer.getX())
-            {
-                rpointer = rcandidate;
-                rIndex = edges.indexOf(edge);
-            }
-        }
-        for (Edge edge : event.getEdges())
-        {
-            if (edge.getCenter()[1]<event.getY())
-                sweepLineStatus.remove(edge);
-            else
-                sweepLineStatus.add(edge);
-        }
-        if (sweepEvent==vertices.size())
-        {
-            edges.add(new Edge(corners[2],event));
-            edges.add(new Edge(corners[3],event));
-            edges.add(new Edge(corners[0],corners[1]));
-            edges.add(new Edge(corners[1],corners[3]));
-            edges.add(new Edge(corners[2],corners[0]));
-            edges.add(new Edge(corners[3],corners[2]));
-        }
-        if (sweepEvent==1)
-        {
-            edges.add(new Edge(corners[0],event));
-            edges.add(new Edge(corners[1],event));
-        }
-        for (int i = 0; i < sweepEvent-1; i++)
-        {
-            Vertex edgeUp = vertices.get(i);
-            boolean clear = true;
-            for (Edge edge: trapezoidalization)
-            {
-                if (edge.getEnd().getY() <= edgeUp.getY())
-                    continue;
-                if (SimplePolygon.intersectsProp(event.getCoordsArr(),edgeUp.getCoordsArr(),edge.getStart().getCoordsArr(),edge.getEnd().getCoordsArr()))
-                {
-                    clear = false;
-                    break;
-                }
-            }
-            if (!clear)
-                continue;
-            Edge newEdge = new Edge(event,edgeUp);
-            for (Edge edge: edges)
-            {
-                if (edge.equals(newEdge))
-                {
-                    clear = false;
-                    break;
-                }
-                if (!edge.contains(event)&&!edge.contains(edgeUp)&&SimplePolygon.intersectsProp(edgeUp.getCoordsArr(),event.getCoordsArr(),edge.getStart().getCoordsArr(),edge.getEnd().getCoordsArr()))
-                {
-                    newEdge.getEnd().removeEdge(newEdge);
-                    newEdge.getStart().removeEdge(newEdge);
-                    clear = false;
-                    break;
-                }
-            }
-            if (clear)
-                edges.add(newEdge);
-        }
-        trapezoidalization.add(new Edge(lpointer,rpointer,true));
-        String str = "L=" + ((lIndex==-1)?"left":lIndex);
-        str +=",R=" + ((rIndex==-1)?"right":rIndex);
-        tableRows.add(String.format("%-20s%-25s%-20s",sweepEvent,sweepLineStatus,str));
+        triangulator.reset();
+        markDirty(Layer.values());
     }
 
     /**
-     * Constructs a monotone mountain from a pair of consecutive edges in it.
-     * @param edge1 an edge of the PSLG
-     * @param edge2 another edge of the PSLG
-     * @param common the common vertex of the pair
-     * @return a list of vertices from which a simple polygon can be constructed
+     * Removes the PSLG
      */
-    public ArrayList<Vertex> constructPolygon(Edge edge1, Edge edge2, Vertex common)
+    public void clear()
     {
-        ArrayList<Vertex> face = new ArrayList<>();
-        Vertex start = edge1.getOther(common);
-        Vertex end = edge2.getOther(common);
-        if (SimplePolygon.left(common.getCoordsArr(), end.getCoordsArr(), start.getCoordsArr()))
-        {
-            Vertex temp = start;
-            start = end;
-            end = temp;
-            edge1 = edge2;
-        }
-        face.add(end);
-        face.add(common);
-        int i = 0;
-        while (start != end&&i++<vertices.size())
-        {
-            face.add(start);
-            edge1 = start.getEdges().get((start.getEdges().indexOf(edge1)+1)%start.getEdges().size());
-            start = edge1.getOther(start);
-        }
-        if (i >= vertices.size()-2)
-            return new ArrayList<>();
-        return face;
+        triangulator.clear();
+        grid.clear();
+        if (live != null)
+            rebuildLive();
+        markDirty(Layer.values());
     }
 
     /**
-     * Resets the PSLG to what the user inputted
+     * Replaces the PSLG with one read from a file
+     * @param pslg the PSLG
      */
-    public void reset()
+    public void load(Pslg pslg)
     {
-        ArrayList<Edge> leftover = new ArrayList<>();
-        int index = 0;
-        for (;index<edges.size();index++)
-        {
-            if (edges.get(index).contains(corners[0]))
-                break;
-            leftover.add(edges.get(index));
-        }
-        edges = leftover;
-        faces = new ArrayList<>();
-        for (int j = 0; j < 4; j++) {
-            vertices.remove(corners[j]);
-        }
-        for (Vertex vertex : vertices)
+        clear();
+        for (Vertex vertex : triangulator.load(pslg.xs, pslg.ys, pslg.edgePairs))
+            grid.add(vertex);
+        if (live != null)
+            rebuildLive();
+        markDirty(Layer.values());
+    }
+
+    /**
+     * Triangulates the PSLG from scratch inside a frame around the panel and every vertex, which is only
+     * needed when live triangulation is switched on or a vertex is drawn outside the old frame
+     */
+    private void rebuildLive()
+    {
+        int[] frame = {-1, -1, getWidth() + 1, getHeight() + 1};
+        for (Vertex vertex : triangulator.vertices)
         {
-            vertex.clear(edges);
+            frame[0] = Math.min(frame[0], vertex.getX() - 1);
+            frame[1] = Math.min(frame[1], vertex.getY() - 1);
+            frame[2] = Math.max(frame[2], vertex.getX() + 1);
+            frame[3] = Math.max(frame[3], vertex.getY() + 1);
         }
+        live = LiveTriangulation.of(triangulator.vertices, triangulator.edges, frame);
     }
 
     /**
@@ -205,76 +121,147 @@ public class GraphPanel extends JPanel implements MouseListener, KeyListener, Mo
      */
     public void triangulate()
     {
-        vertices.add(corners[0]);
-        vertices.add(corners[1]);
-        vertices.add(corners[2]);
-        vertices.add(corners[3]);
-        for (Vertex vertex : vertices)
-        {
-            vertex.getEdges().sort((o1, o2) -> {
-                if ((o1.getCenter()[1]-vertex.getY())*(o2.getCenter()[1]-vertex.getY())<0)
-                    return o1.getCenter()[1]-o2.getCenter()[1];
-                int crossproduct= SimplePolygon.crossProduct(vertex.getCoordsArr(),o1.getCenter(),vertex.getCoordsArr(),o2.getCenter());
-                return Integer.compare(crossproduct, 0);
-            });
-        }
-        for (Vertex vertex : vertices) {
-            ArrayList<Edge> edges = vertex.getEdges();
-            for (int j = 0; j < edges.size(); j++) {
-                Edge edge1 = edges.get(j);
-                Edge edge2 = edges.get((j + 1) % edges.size());
-                if (edge1.getCenter()[1] > vertex.getY() && edge2.getCenter()[1] > vertex.getY()) {
-                    ArrayList<Vertex> vertices = constructPolygon(edge1, edge2, vertex);
-                    if (vertices.size() <= 3)
-                        continue;
-                    SimplePolygon newFace = new SimplePolygon(vertices);
-                    faces.add(newFace);
-                }
-            }
-        }
-        int faceCount = faces.size();
-        for (int i = 0; i < faceCount;i++)
-        {
-            faces.addAll(faces.get(i).triangulate());
-        }
+        triangulator.triangulate();
+        markDirty(Layer.PSLG, Layer.FACES);
+    }
+
+    /**
+     * Marks layers as out of date, they are drawn again at the next paint
+     * @param changed the layers whose contents changed
+     */
+    public void markDirty(Layer... changed)
+    {
+        for (Layer layer : changed)
+            dirty.add(layer);
     }
 
     /**
-     * Paints the left side of the screen
+     * Paints the left side of the screen from the cached layers, drawing again only the layers that changed.
+     * The ghost edge is drawn on top each time, so moving it only repaints the rectangle around it.
      * @param g Graphics object used by JPanel
      */
     public void paintComponent(Graphics g)
     {
         super.paintComponent(g);
-        int i = 1;
-        for (Vertex vertex: vertices)
+        for (Layer layer : Layer.values())
         {
-            vertex.paint(g,i++);
-        }
-        i = 1;
-        for (Edge edge : edges)
-        {
-            edge.paint(g,i++);
-        }
-        for (SimplePolygon face : faces)
-        {
-            face.paint(g);
+            if (layer == Layer.LIVE && (live == null || Main.phase != Main.PhaseType.DRAW))
+                continue;
+            if (layer == Layer.SWEEP && Main.phase != Main.PhaseType.SWEEP)
+                continue;
+            g.drawImage(layer(layer),0,0,null);
         }
         if (Main.phase == Main.PhaseType.DRAW)
         {
             g.setColor(new Color(100,100,200));
             g.drawLine(ghostStart.getX(),ghostStart.getY(),ghostEnd.getX(),ghostEnd.getY());
         }
-        if (Main.phase == Main.PhaseType.SWEEP)
+    }
+
+    /**
+     * Gets the image of a layer, drawing it first if it changed or the panel was resized
+     * @param layer the layer
+     * @return the image, transparent where nothing is drawn
+     */
+    private BufferedImage layer(Layer layer)
+    {
+        BufferedImage image = layers.get(layer);
+        int width = Math.max(1, getWidth()), height = Math.max(1, getHeight());
+        if (image == null || image.getWidth() != width || image.getHeight() != height)
         {
-            for (Edge edge : trapezoidalization)
-            {
-                edge.paint(g);
-            }
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            layers.put(layer, image);
         }
+        else if (!dirty.contains(layer))
+            return image;
+        dirty.remove(layer);
+        Graphics2D g = image.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0,0,width,height);
+        g.setComposite(AlphaComposite.SrcOver);
+        g.setFont(getFont());
+        switch (layer) {
+            case PSLG:
+                Set<Vertex> inMountains = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (SimplePolygon face : triangulator.faces)
+                {
+                    inMountains.addAll(face.vertices);
+                }
+                int i = 1;
+                for (Vertex vertex: triangulator.vertices)
+                {
+                    vertex.paint(g,i++,inMountains.contains(vertex) ? MOUNTAIN_VERTEX : VERTEX);
+                }
+                boolean flipped = triangulator.delaunay && Main.phase == Main.PhaseType.FINAL;
+                int shown = flipped ? triangulator.pslgEdgeCount : triangulator.edges.size();
+                for (i = 0; i < shown; i++)
+                {
+                    triangulator.edges.get(i).paint(g,i+1);
+                }
+                break;
+            case FACES:
+                if (!triangulator.delaunay || Main.phase != Main.PhaseType.FINAL)
+                {
+                    for (SimplePolygon face : triangulator.faces)
+                    {
+                        face.paint(g);
+                    }
+                }
+                if (Main.phase == Main.PhaseType.FINAL && triangulator.triangulation != null)
+                    triangulator.triangulation.paint(g);
+                break;
+            case LIVE:
+                g.setColor(new Color(220,220,220));
+                int[] diagonals = live.diagonals();
+                for (int j = 0; j < diagonals.length; j += 4)
+                {
+                    g.drawLine(diagonals[j],diagonals[j+1],diagonals[j+2],diagonals[j+3]);
+                }
+                break;
+            case SWEEP:
+                for (Edge edge : triangulator.trapezoidalization)
+                {
+                    edge.paint(g);
+                }
+        }
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Finds the rectangle the ghost edge is drawn in
+     * @return the rectangle, a pixel larger on each side
+     */
+    private Rectangle ghostBounds()
+    {
+        Rectangle bounds = new Rectangle(ghostStart.getX(),ghostStart.getY(),0,0);
+        bounds.add(ghostEnd.getX(),ghostEnd.getY());
+        bounds.grow(1,1);
+        return bounds;
     }
+
+    /**
+     * Switches the constrained Delaunay flips on or off with the D key, redrawing the triangulation at once in
+     * the final phase, and live triangulation with the L key
+     * @param e KeyEvent containing the key typed
+     */
     @Override
     public void keyTyped(KeyEvent e) {
+        if (Character.toLowerCase(e.getKeyChar()) == 'd')
+        {
+            triangulator.setDelaunay(!triangulator.delaunay);
+            markDirty(Layer.PSLG, Layer.FACES);
+            repaint();
+        }
+        if (Character.toLowerCase(e.getKeyChar()) == 'l' && Main.phase == Main.PhaseType.DRAW)
+        {
+            if (live == null)
+                rebuildLive();
+            else
+                live = null;
+            markDirty(Layer.LIVE);
+            repaint();
+        }
     }
 
     @Override
@@ -295,60 +282,60 @@ public class GraphPanel extends JPanel implements MouseListener, KeyListener, Mo
      */
     @Override
     public void mousePressed(MouseEvent e) {
+        ArrayList<Vertex> vertices = triangulator.vertices;
+        ArrayList<Edge> edges = triangulator.edges;
         if (Main.phase == Main.PhaseType.DRAW) {
+            long start = System.nanoTime();
             if (e.getButton() == MouseEvent.BUTTON1) {
-                vertices.add(new Vertex(e.getX(), e.getY()));
+                Vertex vertex = new Vertex(e.getX(), e.getY());
+                vertices.add(vertex);
+                grid.add(vertex);
+                if (live != null && live.contains(vertex.getX(), vertex.getY()))
+                    live.addVertex(vertex);
+                else if (live != null)
+                    rebuildLive();
             }
             if (e.getButton() == MouseEvent.BUTTON3&&vertices.size()>0) {
-                Vertex closest = vertices.get(0);
-                double dist = closest.distance(e.getX(),e.getY());
-                for (int i = 1; i < vertices.size(); i++) {
-                    Vertex vertex = vertices.get(i);
-                    if (vertex.distance(e.getX(),e.getY()) < dist) {
-                        dist = vertex.distance(e.getX(),e.getY()) ;
-                        closest = vertex;
-                    }
-                }
-                vertices.remove(closest);
-                for (int i =0; i < edges.size();i++)
-                {
-                    if (edges.get(i).contains(closest)) {
-                        Edge edge = edges.get(i);
-                        edge.getStart().removeEdge(edge);
-                        edge.getEnd().removeEdge(edge);
-                        edges.remove(i);
-                        i--;
-                    }
-                }
+                Vertex closest = grid.nearest(e.getX(),e.getY());
+                triangulator.removeVertex(closest);
+                grid.remove(closest);
+                if (live != null)
+                    live.removeVertex(closest);
             }
             if (e.getButton() == MouseEvent.BUTTON2&&vertices.size()>1)
             {
-                Edge newEdge = new Edge(ghostStart,ghostEnd);
-                int i = 0;
-                for (; i < edges.size(); i++)
+                int existing = triangulator.findEdge(ghostStart,ghostEnd);
+                if (existing != EdgeRegistry.MISSING)
                 {
-                    if (edges.get(i).equals(newEdge))
-                    {
-                        edges.remove(i);
-                        i--;
-                        break;
-                    }
-                    if (edges.get(i).contains(ghostStart)||edges.get(i).contains(ghostEnd))
+                    triangulator.removeEdge(existing);
+                    if (live != null)
+                        live.removeEdge(ghostStart,ghostEnd);
+                }
+                else
+                {
+                    int i = 0;
+                    for (; i < edges.size(); i++)
                     {
-                        continue;
+                        if (edges.get(i).contains(ghostStart)||edges.get(i).contains(ghostEnd))
+                        {
+                            continue;
+                        }
+                        Edge edge = edges.get(i);
+                        if (Predicates.intersectsProp(ghostStart.getX(),ghostStart.getY(),ghostEnd.getX(),ghostEnd.getY(),
+                                edge.getStart().getX(),edge.getStart().getY(),edge.getEnd().getX(),edge.getEnd().getY()))
+                        {
+                            break;
+                        }
                     }
-                    if (SimplePolygon.intersectsProp(ghostStart.getCoordsArr(),ghostEnd.getCoordsArr(),edges.get(i).getStart().getCoordsArr(),edges.get(i).getEnd().getCoordsArr()))
-                    {
-                        i--;
-                        newEdge.getStart().removeEdge(newEdge);
-                        newEdge.getEnd().removeEdge(newEdge);
-                        break;
+                    if (i == edges.size()) {
+                        triangulator.insertEdge(new Edge(ghostStart,ghostEnd));
+                        if (live != null)
+                            live.addEdge(ghostStart,ghostEnd);
                     }
                 }
-                if (i == edges.size()) {
-                    edges.add(newEdge);
-                }
             }
+            markDirty(Layer.PSLG, Layer.LIVE);
+            Metrics.time(Main.PhaseType.DRAW, start);
         }
         repaint();
         Main.algebraPanel.repaint();
@@ -375,30 +362,31 @@ public class GraphPanel extends JPanel implements MouseListener, KeyListener, Mo
 
     @Override
     public void mouseMoved(MouseEvent e) {
+        ArrayList<Vertex> vertices = triangulator.vertices;
         if (Main.phase== Main.PhaseType.DRAW&&vertices.size()>1)
         {
-            for (Vertex vertex: vertices)
+            Rectangle before = ghostBounds();
+            Vertex nearest = grid.nearest(e.getX(),e.getY());
+            if (nearest != null && nearest.distance(e.getX(),e.getY())<ghostStart.distance(e.getX(),e.getY()))
             {
-                if (vertex.distance(e.getX(),e.getY())<ghostStart.distance(e.getX(),e.getY()))
-                {
-                    ghostStart = vertex;
-                }
+                ghostStart = nearest;
             }
-            int[] mouseCoords = {e.getX(),e.getY()};
             if (ghostEnd.equals(ghostStart))
             {
                 ghostEnd = new Vertex(ghostStart.getX()+5000,ghostStart.getY());
             }
-            for (Vertex vertex: vertices)
+            Vertex aligned = grid.nearestToLine(ghostStart.getX(),ghostStart.getY(),e.getX(),e.getY(),ghostStart);
+            if (aligned != null &&
+                    Math.abs(Predicates.cross(ghostStart.getX(),ghostStart.getY(),aligned.getX(),aligned.getY(),e.getX(),e.getY()))
+                    <= Math.abs(Predicates.cross(ghostStart.getX(),ghostStart.getY(),ghostEnd.getX(),ghostEnd.getY(),e.getX(),e.getY())))
             {
-                if (vertex != ghostStart&&
-                        Math.abs(SimplePolygon.crossProduct(vertex.getCoordsArr(),ghostStart.getCoordsArr(),mouseCoords, ghostStart.getCoordsArr())
-                        )<= Math.abs(SimplePolygon.crossProduct(ghostEnd.getCoordsArr(),ghostStart.getCoordsArr(),mouseCoords, ghostStart.getCoordsArr())))
-                {
-                    ghostEnd = vertex;
-                }
+                ghostEnd = aligned;
+            }
+            Rectangle after = ghostBounds();
+            if (!after.equals(before))
+            {
+                repaint(before.union(after));
             }
-            repaint();
         }
     }
 }
\ No newline at end of file
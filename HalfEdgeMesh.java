@@ -0,0 +1,440 @@
+import java.util.Arrays;
+
+/**
+ * The topology of a PSLG as half-edges in primitive arrays. Edge k is the pair of half-edges 2k and 2k+1,
+ * so the twin of half-edge h is h^1. The face to the left of half-edge h goes on along next(h), and the
+ * half-edges leaving a vertex are linked in order of angle, so walking a face takes O(1) per step. The
+ * outgoing half-edge of a vertex is always the first counterclockwise from the positive x-axis.
+ * <p>
+ * Linking an edge into the order around a vertex walks from a half-edge known to come before it, so it takes
+ * O(1) when the caller knows its neighbour, as the sweep does from the gap a diagonal goes through, and
+ * O(degree) otherwise. Edges added together by addEdges are sorted around each vertex instead, in O(d log d)
+ * for a vertex of degree d.
+ */
+public class HalfEdgeMesh {
+    private int[] xs, ys, outgoing;
+    private int vertexCount;
+    private int[] origin, next, prev;
+    private int halfEdgeCount;
+
+    public HalfEdgeMesh()
+    {
+        this(16, 16);
+    }
+
+    /**
+     * Constructs an empty mesh with room for some vertices and edges before its arrays have to grow
+     * @param vertices the expected number of vertices
+     * @param edges the expected number of edges
+     */
+    public HalfEdgeMesh(int vertices, int edges)
+    {
+        xs = new int[Math.max(1, vertices)];
+        ys = new int[xs.length];
+        outgoing = new int[xs.length];
+        origin = new int[Math.max(2, 2 * edges)];
+        next = new int[origin.length];
+        prev = new int[origin.length];
+    }
+
+    /**
+     * Adds a vertex with no edges
+     * @param x the x-coord of the vertex
+     * @param y the y-coord of the vertex
+     * @return the index of the vertex
+     */
+    public int addVertex(int x, int y)
+    {
+        if (vertexCount == xs.length)
+        {
+            xs = Arrays.copyOf(xs, 2 * vertexCount);
+            ys = Arrays.copyOf(ys, 2 * vertexCount);
+            outgoing = Arrays.copyOf(outgoing, 2 * vertexCount);
+        }
+        xs[vertexCount] = x;
+        ys[vertexCount] = y;
+        outgoing[vertexCount] = -1;
+        return vertexCount++;
+    }
+
+    /**
+     * Adds an edge, linking its half-edges into the order around both ends in O(degree)
+     * @param a the index of the start vertex
+     * @param b the index of the end vertex
+     * @return the half-edge from a to b, its twin goes from b to a
+     */
+    public int addEdge(int a, int b)
+    {
+        return addEdge(a, b, -1, -1);
+    }
+
+    /**
+     * Adds an edge, linking it around each end by walking counterclockwise from a half-edge leaving that end,
+     * which takes O(1) if no other half-edge lies between it and the new one
+     * @param a the index of the start vertex
+     * @param b the index of the end vertex
+     * @param fromA a half-edge leaving a that comes before the new edge counterclockwise, or -1 to start from
+     * the last half-edge leaving a
+     * @param fromB a half-edge leaving b that comes before the new edge counterclockwise, or -1 to start from
+     * the last half-edge leaving b
+     * @return the half-edge from a to b, its twin goes from b to a
+     */
+    public int addEdge(int a, int b, int fromA, int fromB)
+    {
+        int h = reserve(1);
+        origin[h] = a;
+        origin[h ^ 1] = b;
+        link(h, fromA);
+        link(h ^ 1, fromB);
+        return h;
+    }
+
+    /**
+     * Adds many edges at once, sorting the half-edges leaving each vertex by angle in O(d log d) for degree d
+     * rather than linking them one by one. Edge i of the pairs gets the half-edges first+2i and first+2i+1.
+     * @param edgePairs the edges as consecutive pairs of start and end vertex indices
+     * @return the half-edge from the start of the first edge to its end
+     */
+    public int addEdges(int[] edgePairs)
+    {
+        int first = reserve(edgePairs.length / 2);
+        System.arraycopy(edgePairs, 0, origin, first, edgePairs.length);
+        int[] start = new int[vertexCount + 1];
+        for (int i = 0; i < edgePairs.length; i++)
+            start[edgePairs[i] + 1]++;
+        for (int v = 0; v < vertexCount; v++)
+            start[v + 1] += start[v];
+        int[] fill = Arrays.copyOf(start, vertexCount);
+        int[] around = new int[edgePairs.length];
+        for (int i = 0; i < edgePairs.length; i++)
+            around[fill[edgePairs[i]]++] = first + i;
+        int[] buffer = new int[edgePairs.length];
+        for (int v = 0; v < vertexCount; v++)
+        {
+            int from = start[v], to = start[v + 1];
+            if (from == to)
+                continue;
+            sortByAngle(around, buffer, from, to);
+            if (outgoing[v] != -1)
+            {
+                for (int i = from; i < to; i++)
+                    link(around[i], -1);
+                continue;
+            }
+            for (int i = from; i < to; i++)
+            {
+                int g = around[i], h = around[(i + 1 < to) ? i + 1 : from];
+                next[h ^ 1] = g;
+                prev[g] = h ^ 1;
+            }
+            outgoing[v] = around[from];
+        }
+        return first;
+    }
+
+    /**
+     * Makes room for more edges at the end of the arrays
+     * @param edges the number of edges
+     * @return the first half-edge of the new edges
+     */
+    private int reserve(int edges)
+    {
+        int needed = halfEdgeCount + 2 * edges;
+        if (needed > origin.length)
+        {
+            int length = Math.max(needed, 2 * origin.length);
+            origin = Arrays.copyOf(origin, length);
+            next = Arrays.copyOf(next, length);
+            prev = Arrays.copyOf(prev, length);
+        }
+        int h = halfEdgeCount;
+        halfEdgeCount = needed;
+        return h;
+    }
+
+    /**
+     * Sorts half-edges with the same origin counterclockwise from the positive x-axis, by a merge sort
+     * @param around the half-edges, sorted from index from to index to
+     * @param buffer room for the same indices
+     */
+    private void sortByAngle(int[] around, int[] buffer, int from, int to)
+    {
+        if (to - from < 2)
+            return;
+        int middle = (from + to) >>> 1;
+        sortByAngle(around, buffer, from, middle);
+        sortByAngle(around, buffer, middle, to);
+        if (compareAngles(around[middle - 1], around[middle]) <= 0)
+            return;
+        System.arraycopy(around, from, buffer, from, to - from);
+        for (int i = from, j = middle, k = from; k < to; k++)
+        {
+            if (j == to || (i < middle && compareAngles(buffer[i], buffer[j]) <= 0))
+                around[k] = buffer[i++];
+            else
+                around[k] = buffer[j++];
+        }
+    }
+
+    /**
+     * Links a new half-edge into the order of the half-edges leaving its origin, walking counterclockwise from
+     * a half-edge until the new one fits after it
+     * @param h the half-edge
+     * @param from a half-edge with the same origin to start from, or -1 for the last one
+     */
+    private void link(int h, int from)
+    {
+        int v = origin[h];
+        if (outgoing[v] == -1)
+        {
+            outgoing[v] = h;
+            next[h ^ 1] = h;
+            prev[h] = h ^ 1;
+            return;
+        }
+        int cw = (from == -1) ? next[outgoing[v] ^ 1] : from;
+        for (int start = cw; !fits(cw, h, rotate(cw)); )
+        {
+            cw = rotate(cw);
+            if (cw == start)
+                break;
+        }
+        int ccw = rotate(cw);
+        next[h ^ 1] = cw;
+        prev[cw] = h ^ 1;
+        next[ccw ^ 1] = h;
+        prev[h] = ccw ^ 1;
+        if (compareAngles(h, outgoing[v]) < 0)
+            outgoing[v] = h;
+    }
+
+    /**
+     * Determines if a half-edge lies strictly between two consecutive half-edges counterclockwise
+     * @param cw a half-edge
+     * @param h a half-edge with the same origin
+     * @param ccw the half-edge after cw counterclockwise, or cw itself if it is the only one
+     * @return true if h belongs between them
+     */
+    private boolean fits(int cw, int h, int ccw)
+    {
+        if (cw == ccw)
+            return true;
+        if (compareAngles(cw, ccw) < 0)
+            return compareAngles(cw, h) < 0 && compareAngles(h, ccw) < 0;
+        return compareAngles(cw, h) < 0 || compareAngles(h, ccw) < 0;
+    }
+
+    /**
+     * Removes the last edge added, in O(1)
+     */
+    public void removeLastEdge()
+    {
+        int h = halfEdgeCount - 2;
+        unlink(h);
+        unlink(h ^ 1);
+        halfEdgeCount -= 2;
+    }
+
+    /**
+     * Removes edges from the end until there are only a given number left, like after a sweep is undone
+     * @param edges the number of edges to keep
+     */
+    public void truncate(int edges)
+    {
+        while (halfEdgeCount > 2 * edges)
+            removeLastEdge();
+    }
+
+    /**
+     * Removes any edge in O(1), the last edge is moved into its place so the edges stay numbered 0 to n-1
+     * @param h a half-edge of the edge
+     * @return the half-edge the moved edge had as its even half before, or -1 if it was the last edge
+     */
+    public int removeEdge(int h)
+    {
+        int slot = h & ~1;
+        unlink(slot);
+        unlink(slot ^ 1);
+        int last = halfEdgeCount - 2;
+        halfEdgeCount -= 2;
+        if (slot == last)
+            return -1;
+        for (int j = 0; j < 2; j++)
+        {
+            origin[slot + j] = origin[last + j];
+            next[slot + j] = moved(next[last + j], last, slot);
+            prev[slot + j] = moved(prev[last + j], last, slot);
+        }
+        for (int j = 0; j < 2; j++)
+        {
+            int g = slot + j;
+            next[prev[g]] = g;
+            prev[next[g]] = g;
+            if (outgoing[origin[g]] == last + j)
+                outgoing[origin[g]] = g;
+        }
+        return last;
+    }
+
+    private static int moved(int h, int from, int to)
+    {
+        return ((h & ~1) == from) ? to + (h & 1) : h;
+    }
+
+    /**
+     * Turns an edge into the other diagonal of the two faces beside it, keeping its index, in O(degree).
+     * The faces must be triangles making a convex quadrilateral.
+     * @param h a half-edge of the edge
+     */
+    public void flip(int h)
+    {
+        int c = destination(next[h]);
+        int d = destination(next[h ^ 1]);
+        unlink(h);
+        unlink(h ^ 1);
+        origin[h] = c;
+        origin[h ^ 1] = d;
+        link(h, -1);
+        link(h ^ 1, -1);
+    }
+
+    /**
+     * Moves a vertex with no edges, so that the index of a removed vertex can be used again
+     * @param v the index of the vertex
+     * @param x the new x-coord
+     * @param y the new y-coord
+     */
+    public void setPosition(int v, int x, int y)
+    {
+        xs[v] = x;
+        ys[v] = y;
+    }
+
+    private void unlink(int h)
+    {
+        int v = origin[h];
+        int in = prev[h];
+        int cw = next[h ^ 1];
+        if (cw == h)
+        {
+            outgoing[v] = -1;
+            return;
+        }
+        next[in] = cw;
+        prev[cw] = in;
+        if (outgoing[v] == h)
+            outgoing[v] = in ^ 1;
+    }
+
+    /**
+     * Orders two half-edges leaving the same vertex counterclockwise by angle, starting from the positive x-axis
+     * @param g a half-edge
+     * @param h another half-edge with the same origin
+     * @return negative if g comes before h, positive if after
+     */
+    private int compareAngles(int g, int h)
+    {
+        int v = origin[g];
+        int a = origin[g ^ 1], b = origin[h ^ 1];
+        int halfA = half((long) xs[a] - xs[v], (long) ys[a] - ys[v]);
+        int halfB = half((long) xs[b] - xs[v], (long) ys[b] - ys[v]);
+        if (halfA != halfB)
+            return Integer.compare(halfA, halfB);
+        return Predicates.orientation(xs[v], ys[v], xs[b], ys[b], xs[a], ys[a]);
+    }
+
+    private static int half(long dx, long dy)
+    {
+        return (dy > 0 || (dy == 0 && dx > 0)) ? 0 : 1;
+    }
+
+    public int twin(int h)
+    {
+        return h ^ 1;
+    }
+
+    public int origin(int h)
+    {
+        return origin[h];
+    }
+
+    public int destination(int h)
+    {
+        return origin[h ^ 1];
+    }
+
+    /**
+     * Gets the half-edge after h on the face to its left
+     * @param h a half-edge
+     * @return the next half-edge
+     */
+    public int next(int h)
+    {
+        return next[h];
+    }
+
+    public int prev(int h)
+    {
+        return prev[h];
+    }
+
+    /**
+     * Gets the next half-edge counterclockwise around the origin of h
+     * @param h a half-edge
+     * @return the half-edge
+     */
+    public int rotate(int h)
+    {
+        return prev[h] ^ 1;
+    }
+
+    /**
+     * Gets a half-edge leaving a vertex
+     * @param v the index of the vertex
+     * @return the half-edge, or -1 if the vertex has no edges
+     */
+    public int outgoing(int v)
+    {
+        return outgoing[v];
+    }
+
+    public int getX(int v)
+    {
+        return xs[v];
+    }
+
+    public int getY(int v)
+    {
+        return ys[v];
+    }
+
+    public int vertexCount()
+    {
+        return vertexCount;
+    }
+
+    public int halfEdgeCount()
+    {
+        return halfEdgeCount;
+    }
+
+    /**
+     * Finds the half-edge from one vertex to another
+     * @param a the index of the start vertex
+     * @param b the index of the end vertex
+     * @return the half-edge, or -1 if they are not joined
+     */
+    public int find(int a, int b)
+    {
+        int first = outgoing[a];
+        if (first == -1)
+            return -1;
+        int h = first;
+        do {
+            if (origin[h ^ 1] == b)
+                return h;
+            h = rotate(h);
+        } while (h != first);
+        return -1;
+    }
+}
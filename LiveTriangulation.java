@@ -0,0 +1,517 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * A triangulation of a PSLG inside a frame that is kept up to date while the PSLG is edited, repairing only
+ * the triangles an edit touches. A vertex is added by splitting the triangle or edge it lands in, an edge is
+ * added by flipping the edges it crosses until it appears, and a vertex is removed by triangulating the hole
+ * left by its star. The edges of the PSLG, called segments here since a vertex added on one splits it into
+ * several edges of the mesh, are never flipped.
+ * <p>
+ * It only keeps the preview of the DRAW phase up to date. It is a constrained triangulation kept by flips,
+ * not the sweep's trapezoids and mountains, and the FINAL phase still triangulates the whole PSLG again.
+ */
+public class LiveTriangulation {
+    private static final int NONE = -1;
+    private final HalfEdgeMesh mesh;
+    private final int[] frame;
+    /**
+     * The segment each edge of the mesh is part of, or NONE
+     */
+    private int[] segmentOf;
+    private int[] copies;
+    private final HashMap<Long,Integer> vertexAt;
+    private final ArrayDeque<Integer> freeVertices;
+    /**
+     * Maps the segments to their ids, segment i runs from vertex segmentStart[i] to vertex segmentEnd[i]
+     */
+    private final EdgeRegistry segments;
+    private int[] segmentStart, segmentEnd;
+    private final ArrayDeque<Integer> freeSegments;
+    private final Random random;
+    private int lastHalfEdge;
+
+    /**
+     * Constructs the triangulation of an empty frame, two triangles
+     * @param minX the x-coord of the left side
+     * @param minY the y-coord of the top side
+     * @param maxX the x-coord of the right side
+     * @param maxY the y-coord of the bottom side
+     */
+    public LiveTriangulation(int minX, int minY, int maxX, int maxY)
+    {
+        frame = new int[] {minX, minY, maxX, maxY};
+        mesh = new HalfEdgeMesh();
+        segmentOf = new int[16];
+        copies = new int[16];
+        vertexAt = new HashMap<>();
+        freeVertices = new ArrayDeque<>();
+        segments = new EdgeRegistry();
+        segmentStart = new int[16];
+        segmentEnd = new int[16];
+        freeSegments = new ArrayDeque<>();
+        random = new Random(0);
+        int topLeft = mesh.addVertex(minX, minY), topRight = mesh.addVertex(maxX, minY);
+        int bottomLeft = mesh.addVertex(minX, maxY), bottomRight = mesh.addVertex(maxX, maxY);
+        connect(topLeft, topRight, NONE);
+        connect(topRight, bottomRight, NONE);
+        connect(bottomRight, bottomLeft, NONE);
+        connect(bottomLeft, topLeft, NONE);
+        connect(topLeft, bottomRight, NONE);
+    }
+
+    /**
+     * Triangulates a PSLG, adding its vertices and edges one at a time
+     * @param vertices the vertices
+     * @param edges the edges
+     * @param frame the frame, [minX,minY,maxX,maxY], which every vertex must be strictly inside
+     * @return the triangulation
+     */
+    public static LiveTriangulation of(Iterable<Vertex> vertices, Iterable<Edge> edges, int[] frame)
+    {
+        LiveTriangulation live = new LiveTriangulation(frame[0], frame[1], frame[2], frame[3]);
+        for (Vertex vertex : vertices)
+            live.addVertex(vertex);
+        for (Edge edge : edges)
+            live.addEdge(edge.getStart(), edge.getEnd());
+        return live;
+    }
+
+    /**
+     * Determines if a point is strictly inside the frame, as the vertices have to be
+     * @param x the x-coord of the point
+     * @param y the y-coord of the point
+     * @return true if it is inside
+     */
+    public boolean contains(int x, int y)
+    {
+        return x > frame[0] && x < frame[2] && y > frame[1] && y < frame[3];
+    }
+
+    /**
+     * Adds a vertex by splitting the triangle or edge it is in, found by walking from the last edit
+     * @param vertex the vertex, strictly inside the frame
+     */
+    public void addVertex(Vertex vertex)
+    {
+        long key = EdgeRegistry.key(vertex);
+        Integer existing = vertexAt.get(key);
+        if (existing != null)
+        {
+            copies[existing]++;
+            return;
+        }
+        int x = vertex.getX(), y = vertex.getY();
+        int h = locate(x, y);
+        int v;
+        if (freeVertices.isEmpty())
+            v = mesh.addVertex(x, y);
+        else
+        {
+            v = freeVertices.pop();
+            mesh.setPosition(v, x, y);
+        }
+        if (v >= copies.length)
+            copies = Arrays.copyOf(copies, 2 * v + 2);
+        copies[v] = 1;
+        vertexAt.put(key, v);
+        int a = mesh.origin(h), b = mesh.destination(h), c = mesh.destination(mesh.next(h));
+        if (orientation(a, b, v) != 0)
+        {
+            connect(v, a, NONE);
+            connect(v, b, NONE);
+            connect(v, c, NONE);
+            return;
+        }
+        int d = mesh.destination(mesh.next(mesh.twin(h)));
+        int segment = segmentOf[h / 2];
+        removeEdge(h);
+        connect(v, a, segment);
+        connect(v, b, segment);
+        connect(v, c, NONE);
+        connect(v, d, NONE);
+    }
+
+    /**
+     * Removes a vertex with the edges to it and the segments ending at it, and triangulates the hole.
+     * A segment that passed straight through the vertex is put back across the hole, unless it crosses one
+     * put back before it there, it is then removed too.
+     * @param vertex the vertex
+     */
+    public void removeVertex(Vertex vertex)
+    {
+        long key = EdgeRegistry.key(vertex);
+        Integer found = vertexAt.get(key);
+        if (found == null || --copies[found] > 0)
+            return;
+        int v = found;
+        vertexAt.remove(key);
+        ArrayList<Integer> hole = new ArrayList<>();
+        ArrayList<Integer> through = new ArrayList<>();
+        int first = mesh.outgoing(v);
+        int h = first;
+        do {
+            hole.add(mesh.destination(h));
+            h = mesh.rotate(h);
+        } while (h != first);
+        for (int w : hole)
+        {
+            int segment = segmentOf[mesh.find(v, w) / 2];
+            if (segment == NONE)
+                continue;
+            if (segmentStart[segment] == v || segmentEnd[segment] == v)
+                removeSegment(segment);
+            else if (!through.contains(segment))
+                through.add(segment);
+        }
+        for (int w : hole)
+            removeEdge(mesh.find(v, w));
+        freeVertices.push(v);
+        fill(hole);
+        for (int segment : through)
+        {
+            if (!constrain(segmentStart[segment], segmentEnd[segment], segment))
+                removeSegment(segment);
+        }
+    }
+
+    /**
+     * Adds an edge of the PSLG between two of its vertices, flipping the edges it crosses
+     * @param a a vertex
+     * @param b the other vertex
+     * @return false if the edge would cross or overlap another edge of the PSLG, it is then not added
+     */
+    public boolean addEdge(Vertex a, Vertex b)
+    {
+        Integer from = vertexAt.get(EdgeRegistry.key(a)), to = vertexAt.get(EdgeRegistry.key(b));
+        if (from == null || to == null || from.equals(to))
+            return false;
+        if (segments.get(a, b) != EdgeRegistry.MISSING)
+            return true;
+        int segment = freeSegments.isEmpty() ? segments.size() : freeSegments.pop();
+        if (segment >= segmentStart.length)
+        {
+            segmentStart = Arrays.copyOf(segmentStart, 2 * segment + 2);
+            segmentEnd = Arrays.copyOf(segmentEnd, 2 * segment + 2);
+        }
+        segmentStart[segment] = from;
+        segmentEnd[segment] = to;
+        segments.put(a, b, segment);
+        if (constrain(from, to, segment))
+            return true;
+        removeSegment(segment);
+        return false;
+    }
+
+    /**
+     * Determines if an edge is part of the PSLG
+     * @param a a vertex
+     * @param b the other vertex
+     * @return true if it was added and has not been removed since
+     */
+    public boolean hasEdge(Vertex a, Vertex b)
+    {
+        return segments.get(a, b) != EdgeRegistry.MISSING;
+    }
+
+    /**
+     * Stops treating an edge as part of the PSLG, along with the pieces it was split into by vertices added
+     * on it, the triangulation stays as it is
+     * @param a a vertex
+     * @param b the other vertex
+     */
+    public void removeEdge(Vertex a, Vertex b)
+    {
+        int segment = segments.get(a, b);
+        if (segment != EdgeRegistry.MISSING)
+            removeSegment(segment);
+    }
+
+    /**
+     * Forgets a segment, walking along it from its start to free the edges it is made of
+     */
+    private void removeSegment(int segment)
+    {
+        int start = segmentStart[segment], end = segmentEnd[segment];
+        segments.remove(EdgeRegistry.key(mesh.getX(start), mesh.getY(start)), EdgeRegistry.key(mesh.getX(end), mesh.getY(end)));
+        freeSegments.push(segment);
+        int v = start;
+        while (v != end)
+        {
+            int first = mesh.outgoing(v);
+            int g = first;
+            int piece = -1;
+            do {
+                if (segmentOf[g / 2] == segment && sameDirection(v, end, mesh.destination(g)))
+                    piece = g;
+                g = mesh.rotate(g);
+            } while (g != first && piece == -1);
+            if (piece == -1)
+                return;
+            segmentOf[piece / 2] = NONE;
+            v = mesh.destination(piece);
+        }
+    }
+
+    /**
+     * Makes the line between two vertices part of a segment. It is split at any vertex on it, and each
+     * piece is recovered by flipping the edges that cross it until none do, which always terminates.
+     * @return false if it crosses or overlaps another segment, it is then recovered only up to there
+     */
+    private boolean constrain(int a, int b, int segment)
+    {
+        ArrayList<Integer> crossed = new ArrayList<>();
+        int start = a;
+        while (start != b)
+        {
+            crossed.clear();
+            int stop = crossings(start, b, crossed);
+            if (stop == -1)
+                return false;
+            ArrayDeque<Integer> queue = new ArrayDeque<>(crossed);
+            while (!queue.isEmpty())
+            {
+                int edge = queue.poll();
+                int h = 2 * edge;
+                int c = mesh.destination(mesh.next(h)), d = mesh.destination(mesh.next(mesh.twin(h)));
+                if (!crosses(c, d, mesh.origin(h), mesh.destination(h)))
+                {
+                    queue.add(edge);
+                    continue;
+                }
+                mesh.flip(h);
+                if (crosses(c, d, start, stop))
+                    queue.add(edge);
+            }
+            int h = mesh.find(start, stop);
+            if (segmentOf[h / 2] != NONE && segmentOf[h / 2] != segment)
+                return false;
+            segmentOf[h / 2] = segment;
+            lastHalfEdge = h;
+            start = stop;
+        }
+        return true;
+    }
+
+    /**
+     * Walks the triangles along the line from a towards b, collecting the edges it crosses until it
+     * reaches b or another vertex on the line
+     * @param crossed gets the indices of the crossed edges
+     * @return the vertex reached, or -1 if the line crosses a segment
+     */
+    private int crossings(int a, int b, ArrayList<Integer> crossed)
+    {
+        int direct = mesh.find(a, b);
+        if (direct != -1)
+            return b;
+        int first = mesh.outgoing(a);
+        int g = first;
+        int left = -1, right = -1;
+        do {
+            int w = mesh.destination(g), u = mesh.destination(mesh.rotate(g));
+            if (orientation(a, b, w) == 0 && sameDirection(a, b, w))
+                return w;
+            if (orientation(a, w, b) > 0 && orientation(a, u, b) < 0 && orientation(a, w, u) > 0)
+            {
+                right = w;
+                left = u;
+                break;
+            }
+            g = mesh.rotate(g);
+        } while (g != first);
+        while (true)
+        {
+            int h = mesh.find(right, left);
+            if (segmentOf[h / 2] != NONE)
+                return -1;
+            crossed.add(h / 2);
+            int z = mesh.destination(mesh.next(mesh.twin(h)));
+            int side = orientation(a, b, z);
+            if (side == 0)
+                return z;
+            if (side > 0)
+                left = z;
+            else
+                right = z;
+        }
+    }
+
+    /**
+     * Triangulates the hole left by removing a vertex by clipping ears, its boundary is star-shaped
+     * @param hole the vertices around the hole counterclockwise
+     */
+    private void fill(ArrayList<Integer> hole)
+    {
+        while (hole.size() > 3)
+        {
+            int n = hole.size();
+            boolean clipped = false;
+            for (int i = 0; i < n && !clipped; i++)
+            {
+                int p = hole.get((i + n - 1) % n), q = hole.get(i), r = hole.get((i + 1) % n);
+                if (orientation(p, q, r) <= 0)
+                    continue;
+                boolean empty = true;
+                for (int w : hole)
+                {
+                    if (w != p && w != q && w != r && orientation(p, q, w) >= 0 && orientation(q, r, w) >= 0
+                            && orientation(r, p, w) >= 0)
+                    {
+                        empty = false;
+                        break;
+                    }
+                }
+                if (!empty)
+                    continue;
+                connect(p, r, NONE);
+                hole.remove(i);
+                clipped = true;
+            }
+            if (!clipped)
+                throw new IllegalStateException("No ear to clip in the hole " + hole);
+        }
+    }
+
+    /**
+     * Finds the triangle holding a point with a walk that steps across a random edge the point is beyond,
+     * which can not go round in circles forever like a walk in a fixed order. The walk starts from the closest
+     * of the last edit and about the cube root of n vertices picked at random, so it stays short.
+     * @param x the x-coord of the point
+     * @param y the y-coord of the point
+     * @return a half-edge of the triangle to its left, the point is on that half-edge if it is on an edge
+     */
+    private int locate(int x, int y)
+    {
+        int h = lastHalfEdge;
+        double best = distance(mesh.origin(h), x, y);
+        int n = mesh.vertexCount();
+        for (int samples = (int) Math.cbrt(n); samples > 0; samples--)
+        {
+            int v = random.nextInt(n);
+            if (copies[v] == 0 && v >= 4)
+                continue;
+            double d = distance(v, x, y);
+            if (d < best)
+            {
+                best = d;
+                h = mesh.outgoing(v);
+            }
+        }
+        if (Predicates.orientation(mesh.getX(mesh.origin(h)), mesh.getY(mesh.origin(h)),
+                mesh.getX(mesh.destination(h)), mesh.getY(mesh.destination(h)), x, y) < 0)
+            h = mesh.twin(h);
+        while (true)
+        {
+            int offset = random.nextInt(3);
+            int beyond = -1, on = -1;
+            for (int i = 0; i < 3; i++)
+            {
+                int e = h;
+                for (int j = (i + offset) % 3; j > 0; j--)
+                    e = mesh.next(e);
+                int side = Predicates.orientation(mesh.getX(mesh.origin(e)), mesh.getY(mesh.origin(e)),
+                        mesh.getX(mesh.destination(e)), mesh.getY(mesh.destination(e)), x, y);
+                if (side < 0)
+                {
+                    beyond = e;
+                    break;
+                }
+                if (side == 0)
+                    on = e;
+            }
+            if (beyond == -1)
+                return (on == -1) ? h : on;
+            h = mesh.twin(beyond);
+        }
+    }
+
+    private double distance(int v, int x, int y)
+    {
+        return Math.hypot((double) mesh.getX(v) - x, (double) mesh.getY(v) - y);
+    }
+
+    private void connect(int a, int b, int segment)
+    {
+        int h = mesh.addEdge(a, b);
+        if (h / 2 >= segmentOf.length)
+            segmentOf = Arrays.copyOf(segmentOf, 2 * segmentOf.length);
+        segmentOf[h / 2] = segment;
+        lastHalfEdge = h;
+    }
+
+    private void removeEdge(int h)
+    {
+        int edge = h / 2;
+        int moved = mesh.removeEdge(h);
+        if (moved != -1)
+            segmentOf[edge] = segmentOf[moved / 2];
+        lastHalfEdge = mesh.outgoing(mesh.origin(0));
+    }
+
+    /**
+     * Determines if the segments c-d and a-b cross at a point inside both
+     */
+    private boolean crosses(int c, int d, int a, int b)
+    {
+        return orientation(a, b, c) * orientation(a, b, d) < 0 && orientation(c, d, a) * orientation(c, d, b) < 0;
+    }
+
+    private int orientation(int a, int b, int c)
+    {
+        return Predicates.orientation(mesh.getX(a), mesh.getY(a), mesh.getX(b), mesh.getY(b), mesh.getX(c), mesh.getY(c));
+    }
+
+    /**
+     * Determines if c is on the same side of a as b, for c on the line through a and b
+     */
+    private boolean sameDirection(int a, int b, int c)
+    {
+        return Long.signum((long) mesh.getX(b) - mesh.getX(a)) * Long.signum((long) mesh.getX(c) - mesh.getX(a))
+                + Long.signum((long) mesh.getY(b) - mesh.getY(a)) * Long.signum((long) mesh.getY(c) - mesh.getY(a)) > 0;
+    }
+
+    /**
+     * Lists the triangles, each once
+     * @return the triangles as consecutive coords x1,y1,x2,y2,x3,y3
+     */
+    public int[] triangles()
+    {
+        int[] triangles = new int[3 * mesh.halfEdgeCount()];
+        int count = 0;
+        for (int h = 0; h < mesh.halfEdgeCount(); h++)
+        {
+            int g = mesh.next(h), f = mesh.next(g);
+            if (mesh.next(f) != h || h > g || h > f || orientation(mesh.origin(h), mesh.origin(g), mesh.origin(f)) <= 0)
+                continue;
+            for (int e : new int[] {h, g, f})
+            {
+                triangles[count++] = mesh.getX(mesh.origin(e));
+                triangles[count++] = mesh.getY(mesh.origin(e));
+            }
+        }
+        return Arrays.copyOf(triangles, count);
+    }
+
+    /**
+     * Lists the edges of the triangulation that are not part of the PSLG or the frame
+     * @return the edges as consecutive coords x1,y1,x2,y2
+     */
+    public int[] diagonals()
+    {
+        int[] diagonals = new int[2 * mesh.halfEdgeCount()];
+        int count = 0;
+        for (int h = 0; h < mesh.halfEdgeCount(); h += 2)
+        {
+            if (segmentOf[h / 2] != NONE || h < 8)
+                continue;
+            diagonals[count++] = mesh.getX(mesh.origin(h));
+            diagonals[count++] = mesh.getY(mesh.origin(h));
+            diagonals[count++] = mesh.getX(mesh.destination(h));
+            diagonals[count++] = mesh.getY(mesh.destination(h));
+        }
+        return Arrays.copyOf(diagonals, count);
+    }
+}
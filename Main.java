@@ -1,9 +1,11 @@
 import javax.swing.*;
 import java.awt.*;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 public class Main {
-    public static JFrame frame = new JFrame("PSLG Triangulation Demonstrator");
+    public static JFrame frame;
     public static GraphPanel gpanel;
     public static AlgebraPanel algebraPanel;
 
@@ -12,10 +14,18 @@ public class Main {
 
     /**
      * Main method of the program
-     * @param args args
+     * @param args a PSLG file to start with, .node, .poly or binary, may be left out, or --batch followed by
+     * the arguments of BatchTriangulator to triangulate files without the GUI
      */
-    public static void main(String[] args)
+    public static void main(String[] args) throws IOException, InterruptedException
     {
+        Metrics.registerMBean();
+        if (args.length > 0 && args[0].equals("--batch"))
+        {
+            BatchTriangulator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        frame = new JFrame("PSLG Triangulation Demonstrator");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         BorderLayout borderLayout = new BorderLayout();
         borderLayout.setHgap(0);
@@ -30,6 +40,14 @@ public class Main {
         InfoPanel infoPanel = new InfoPanel();
         infoPanel.setPreferredSize(new Dimension(1200,100));
         frame.add(infoPanel,BorderLayout.SOUTH);
+        if (args.length > 0)
+        {
+            try {
+                gpanel.load(PslgFiles.read(Paths.get(args[0])));
+            } catch (IOException e) {
+                System.err.println("Could not load " + args[0] + ": " + e.getMessage());
+            }
+        }
         frame.setVisible(true);
     }
 
@@ -38,7 +56,7 @@ public class Main {
      */
     public static void phaseAdd()
     {
-        if (phase!= PhaseType.SWEEP || gpanel.sweepEvent >= gpanel.vertices.size())
+        if (phase!= PhaseType.SWEEP || gpanel.triangulator.sweepEvent >= gpanel.triangulator.vertices.size())
             phase = PhaseType.values()[(phase.ordinal()+1)%4];
         switch (phase) {
             case SWEEP:
@@ -46,7 +64,7 @@ public class Main {
                 break;
             case DRAW:
                 gpanel.reset();
-                gpanel.sweepLineStatus = null;
+                gpanel.triangulator.sweepLineStatus = null;
                 break;
             case FINAL:
                 gpanel.triangulate();
@@ -59,12 +77,9 @@ public class Main {
      * Activated when the CLEAR button is pressed, gets rid of the polygon and returns to DRAW Stage.
      */
     public static void phaseClear() {
-        gpanel.vertices = new ArrayList<>();
-        gpanel.edges = new ArrayList<>();
-        gpanel.faces= new ArrayList<>();
+        gpanel.clear();
         gpanel.repaint();
         phase = PhaseType.DRAW;
         algebraPanel.repaint();
-        gpanel.sweepLineStatus = null;
     }
 }
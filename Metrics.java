@@ -0,0 +1,243 @@
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts what the triangulation does and times each phase, process-wide, so it can be seen where time goes
+ * without a profiler. The counters are LongAdders since mountains are triangulated concurrently, and they can
+ * be read with snapshot(), through JMX once registerMBean() is called, or in AlgebraPanel. Starting the JVM with
+ * -Dmetrics.off=true turns counting into a constant false test the JIT removes.
+ */
+public final class Metrics {
+    enum Counter {EVENTS, RAY_HITS, INTERSECTS_PROP, DIAGONALS, MOUNTAINS, TRIANGLES, EAR_CLIPS}
+    static final boolean ENABLED = !Boolean.getBoolean("metrics.off");
+    public static final String OBJECT_NAME = "PslgTriangulation:type=Metrics";
+    private static final LongAdder[] counters = new LongAdder[Counter.values().length];
+    private static final LongAdder[] phaseNanos = new LongAdder[Main.PhaseType.values().length];
+    private static final LongAccumulator peakStatusSize = new LongAccumulator(Math::max, 0);
+
+    static {
+        for (int i = 0; i < counters.length; i++)
+            counters[i] = new LongAdder();
+        for (int i = 0; i < phaseNanos.length; i++)
+            phaseNanos[i] = new LongAdder();
+    }
+
+    private Metrics()
+    {
+    }
+
+    static void count(Counter counter)
+    {
+        if (ENABLED)
+            counters[counter.ordinal()].increment();
+    }
+
+    static void count(Counter counter, long amount)
+    {
+        if (ENABLED)
+            counters[counter.ordinal()].add(amount);
+    }
+
+    /**
+     * Notes the size of the sweep line status, keeping the largest seen
+     * @param size the number of edges in it
+     */
+    static void statusSize(int size)
+    {
+        if (ENABLED)
+            peakStatusSize.accumulate(size);
+    }
+
+    /**
+     * Adds the time since a start to a phase
+     * @param phase the phase the time was spent in
+     * @param start the System.nanoTime() when the work started
+     */
+    static void time(Main.PhaseType phase, long start)
+    {
+        if (ENABLED)
+            phaseNanos[phase.ordinal()].add(System.nanoTime() - start);
+    }
+
+    /**
+     * Reads every counter and timer. The values are read one after another, so work done meanwhile may be in
+     * some and not others.
+     * @return the values
+     */
+    public static Snapshot snapshot()
+    {
+        long[] counts = new long[counters.length];
+        for (int i = 0; i < counts.length; i++)
+            counts[i] = counters[i].sum();
+        long[] nanos = new long[phaseNanos.length];
+        for (int i = 0; i < nanos.length; i++)
+            nanos[i] = phaseNanos[i].sum();
+        return new Snapshot(counts, peakStatusSize.get(), nanos);
+    }
+
+    public static void reset()
+    {
+        for (LongAdder counter : counters)
+            counter.reset();
+        for (LongAdder nanos : phaseNanos)
+            nanos.reset();
+        peakStatusSize.reset();
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server as OBJECT_NAME, doing nothing if they already are
+     * @throws IllegalStateException if JMX refuses the bean
+     */
+    public static void registerMBean()
+    {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // registered before
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register " + OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * The values of the metrics at one moment
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long peakStatusSize;
+        private final long[] phaseNanos;
+
+        private Snapshot(long[] counts, long peakStatusSize, long[] phaseNanos)
+        {
+            this.counts = counts;
+            this.peakStatusSize = peakStatusSize;
+            this.phaseNanos = phaseNanos;
+        }
+
+        public long count(Counter counter)
+        {
+            return counts[counter.ordinal()];
+        }
+
+        public long peakStatusSize()
+        {
+            return peakStatusSize;
+        }
+
+        /**
+         * Gets the time spent in a phase
+         * @param phase the phase
+         * @return the time in nanoseconds
+         */
+        public long nanos(Main.PhaseType phase)
+        {
+            return phaseNanos[phase.ordinal()];
+        }
+
+        /**
+         * Describes the values a line each, for AlgebraPanel
+         * @return the lines
+         */
+        public ArrayList<String> summary()
+        {
+            ArrayList<String> lines = new ArrayList<>();
+            lines.add(String.format("%-20s%-15d%-20s%-15d", "events", count(Counter.EVENTS), "peak SLS", peakStatusSize));
+            lines.add(String.format("%-20s%-15d%-20s%-15d", "ray hits", count(Counter.RAY_HITS), "intersectsProp", count(Counter.INTERSECTS_PROP)));
+            lines.add(String.format("%-20s%-15d%-20s%-15d", "diagonals", count(Counter.DIAGONALS), "mountains", count(Counter.MOUNTAINS)));
+            lines.add(String.format("%-20s%-15d%-20s%-15d", "triangles", count(Counter.TRIANGLES), "ear clips", count(Counter.EAR_CLIPS)));
+            StringBuilder times = new StringBuilder();
+            for (Main.PhaseType phase : Main.PhaseType.values())
+                times.append(String.format("%-10s%-10.1f", phase, nanos(phase) / 1e6));
+            lines.add(times + "ms");
+            return lines;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.join("\n", summary());
+        }
+    }
+
+    /**
+     * Reads the metrics for JMX
+     */
+    private static final class Bean implements MetricsMXBean {
+        @Override
+        public long getEventsProcessed()
+        {
+            return counters[Counter.EVENTS.ordinal()].sum();
+        }
+
+        @Override
+        public long getRayHitCalls()
+        {
+            return counters[Counter.RAY_HITS.ordinal()].sum();
+        }
+
+        @Override
+        public long getIntersectsPropCalls()
+        {
+            return counters[Counter.INTERSECTS_PROP.ordinal()].sum();
+        }
+
+        @Override
+        public long getDiagonalsAdded()
+        {
+            return counters[Counter.DIAGONALS.ordinal()].sum();
+        }
+
+        @Override
+        public long getPeakStatusSize()
+        {
+            return peakStatusSize.get();
+        }
+
+        @Override
+        public long getMountainsExtracted()
+        {
+            return counters[Counter.MOUNTAINS.ordinal()].sum();
+        }
+
+        @Override
+        public long getTrianglesEmitted()
+        {
+            return counters[Counter.TRIANGLES.ordinal()].sum();
+        }
+
+        @Override
+        public long getDrawNanos()
+        {
+            return phaseNanos[Main.PhaseType.DRAW.ordinal()].sum();
+        }
+
+        @Override
+        public long getSweepNanos()
+        {
+            return phaseNanos[Main.PhaseType.SWEEP.ordinal()].sum();
+        }
+
+        @Override
+        public long getTriangulateNanos()
+        {
+            return phaseNanos[Main.PhaseType.TRIANGULATE.ordinal()].sum();
+        }
+
+        @Override
+        public long getFinalNanos()
+        {
+            return phaseNanos[Main.PhaseType.FINAL.ordinal()].sum();
+        }
+
+        @Override
+        public void reset()
+        {
+            Metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * The counters and timers of Metrics as seen through JMX, registered as Metrics.OBJECT_NAME
+ */
+public interface MetricsMXBean {
+    long getEventsProcessed();
+
+    /**
+     * Gets the number of rays cast from events to the edges beside them, which replaced linearIntersection
+     * @return the number of calls
+     */
+    long getRayHitCalls();
+
+    long getIntersectsPropCalls();
+
+    long getDiagonalsAdded();
+
+    /**
+     * Gets the most edges the sweep line status has held at once
+     * @return the peak size
+     */
+    long getPeakStatusSize();
+
+    long getMountainsExtracted();
+
+    long getTrianglesEmitted();
+
+    long getDrawNanos();
+
+    long getSweepNanos();
+
+    long getTriangulateNanos();
+
+    long getFinalNanos();
+
+    /**
+     * Sets every counter and timer back to zero
+     */
+    void reset();
+}
@@ -0,0 +1,127 @@
+/**
+ * Benchmarks the phases of the triangulation on PSLGs from Pslg.grid with 10^3 up to 10^6 vertices,
+ * reporting time and allocation per vertex, run with java PhaseBenchmark [largest n]
+ */
+public class PhaseBenchmark {
+    /**
+     * SWEEP is setUpSweep and every sweepNext, MOUNTAINS is constructMountains, TRIANGULATE is
+     * triangulateIndices on every mountain, INTERSECTS is intersectsProp on each edge and the next 8 and
+     * VALIDATE is CrossingSweep on the whole PSLG
+     */
+    enum Phase {SWEEP, MOUNTAINS, TRIANGULATE, INTERSECTS, VALIDATE}
+
+    /**
+     * Once a phase takes longer than this at one size the larger sizes are skipped
+     */
+    static final long BUDGET = 30_000_000_000L;
+
+    /**
+     * Runs the benchmarks
+     * @param args the largest number of vertices, 1000000 if left out
+     */
+    public static void main(String[] args)
+    {
+        run((args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000);
+    }
+
+    /**
+     * Runs the benchmarks at 10^3 vertices and every tenfold size up to n
+     * @param largest the largest number of vertices
+     */
+    public static void run(int largest)
+    {
+        System.out.println(String.format("%-10s%-15s%-20s%-20s", "n", "phase", "time (ns/vertex)", "alloc (bytes/vertex)"));
+        for (int n = 1000; n <= largest; n *= 10)
+        {
+            Pslg pslg = Pslg.grid(n, n);
+            int runs = (n <= 10_000) ? 5 : (n <= 100_000) ? 2 : 1;
+            long[][] results = new long[Phase.values().length][2];
+            for (int run = 0; run < runs; run++)
+            {
+                long[][] measured = measure(pslg);
+                if (run == 0 && runs > 1)
+                    continue;
+                for (int i = 0; i < results.length; i++)
+                {
+                    results[i][0] += measured[i][0];
+                    results[i][1] += measured[i][1];
+                }
+            }
+            int counted = (runs > 1) ? runs - 1 : 1;
+            Phase slowest = null;
+            for (Phase phase : Phase.values())
+            {
+                long[] result = results[phase.ordinal()];
+                System.out.println(String.format("%-10d%-15s%-20.1f%-20.1f", pslg.size(), phase,
+                        (double) result[0] / counted / pslg.size(), (double) result[1] / counted / pslg.size()));
+                if (result[0] / counted > BUDGET)
+                    slowest = phase;
+            }
+            if (slowest != null && n * 10 <= largest)
+            {
+                System.out.println("skipping larger sizes, " + slowest + " took over " + BUDGET / 1_000_000_000 + " s");
+                break;
+            }
+        }
+    }
+
+    /**
+     * Triangulates a PSLG once, timing each phase
+     * @param pslg the PSLG
+     * @return the time in nanoseconds and the bytes allocated of each phase, indexed by Phase.ordinal()
+     */
+    static long[][] measure(Pslg pslg)
+    {
+        long[][] results = new long[Phase.values().length][];
+        Triangulator triangulator = new Triangulator();
+        triangulator.trace = null;
+        triangulator.load(pslg.xs, pslg.ys, pslg.edgePairs);
+        long[] mark = mark();
+        triangulator.setUpSweep();
+        while (triangulator.sweepEvent < triangulator.vertices.size())
+            triangulator.sweepNext();
+        results[Phase.SWEEP.ordinal()] = since(mark);
+        mark = mark();
+        triangulator.constructMountains();
+        results[Phase.MOUNTAINS.ordinal()] = since(mark);
+        mark = mark();
+        int triangles = 0;
+        for (SimplePolygon face : triangulator.faces)
+            triangles += face.triangulateIndices().length / 3;
+        results[Phase.TRIANGULATE.ordinal()] = since(mark);
+        if (triangles != 2 * pslg.size() + 2)
+            System.out.println("expected " + (2 * pslg.size() + 2) + " triangles, found " + triangles);
+        mark = mark();
+        int found = 0;
+        int[] xs = pslg.xs, ys = pslg.ys, pairs = pslg.edgePairs;
+        for (int i = 0; i < pairs.length; i += 2)
+        {
+            for (int j = i + 2; j < pairs.length && j <= i + 16; j += 2)
+            {
+                if (Predicates.intersectsProp(xs[pairs[i]], ys[pairs[i]], xs[pairs[i+1]], ys[pairs[i+1]],
+                        xs[pairs[j]], ys[pairs[j]], xs[pairs[j+1]], ys[pairs[j+1]]))
+                    found++;
+            }
+        }
+        results[Phase.INTERSECTS.ordinal()] = since(mark);
+        if (found > 0)
+            System.out.println(found + " edges of the generated PSLG cross");
+        mark = mark();
+        int[] crossings = CrossingSweep.crossings(pslg);
+        results[Phase.VALIDATE.ordinal()] = since(mark);
+        if (crossings.length > 0)
+            System.out.println(crossings.length / 2 + " pairs of edges of the generated PSLG cross");
+        return results;
+    }
+
+    private static long[] mark()
+    {
+        return new long[] {System.nanoTime(), Benchmark.allocatedBytes()};
+    }
+
+    private static long[] since(long[] mark)
+    {
+        long bytes = Benchmark.allocatedBytes() - mark[1];
+        return new long[] {System.nanoTime() - mark[0], bytes};
+    }
+}
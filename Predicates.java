@@ -0,0 +1,240 @@
+import java.math.BigInteger;
+
+/**
+ * The geometric predicates of the algorithm working on raw coordinates, so that calling them allocates nothing
+ * but in the rare exact incircle test. The orientation and incircle tests are exact for any int coordinates,
+ * they are first evaluated in floating point and only redone exactly, in 128-bit integer arithmetic or with
+ * BigIntegers for the incircle test, when the rounding error could have changed the sign.
+ */
+public final class Predicates {
+    /**
+     * Returned by the ray intersection methods when the ray misses the edge
+     */
+    public static final int MISS = Integer.MIN_VALUE;
+    /**
+     * Bound on the relative error of the floating point orientation determinant, (3+16e)e for the unit roundoff e
+     */
+    private static final double ORIENTATION_ERROR = (3.0 + 16.0 * 0x1p-53) * 0x1p-53;
+    /**
+     * Bound on the relative error of the floating point incircle determinant, (10+96e)e for the unit roundoff e
+     */
+    private static final double INCIRCLE_ERROR = (10.0 + 96.0 * 0x1p-53) * 0x1p-53;
+
+    private Predicates()
+    {
+    }
+
+    /**
+     * Determines signed area of the parallelogram spanned by b-a and c-a, only exact while the coordinate
+     * differences fit in 31 bits, use orientation for its sign
+     * @param ax x-coord of point a
+     * @param ay y-coord of point a
+     * @param bx x-coord of point b
+     * @param by y-coord of point b
+     * @param cx x-coord of point c
+     * @param cy y-coord of point c
+     * @return the cross product of b-a and c-a
+     */
+    public static long cross(int ax, int ay, int bx, int by, int cx, int cy)
+    {
+        return ((long) bx - ax) * ((long) cy - ay) - ((long) by - ay) * ((long) cx - ax);
+    }
+
+    /**
+     * Finds the sign of the cross product of b-a and c-a exactly
+     * @param ax x-coord of point a
+     * @param ay y-coord of point a
+     * @param bx x-coord of point b
+     * @param by y-coord of point b
+     * @param cx x-coord of point c
+     * @param cy y-coord of point c
+     * @return 1 if c is to the left of the line from a to b, -1 if it is to the right, 0 if it is on it
+     */
+    public static int orientation(int ax, int ay, int bx, int by, int cx, int cy)
+    {
+        long abx = (long) bx - ax, aby = (long) by - ay;
+        long acx = (long) cx - ax, acy = (long) cy - ay;
+        double detLeft = (double) abx * acy;
+        double detRight = (double) aby * acx;
+        double det = detLeft - detRight;
+        if (Math.abs(det) > ORIENTATION_ERROR * (Math.abs(detLeft) + Math.abs(detRight)))
+            return (det > 0) ? 1 : -1;
+        return compareProducts(abx, acy, aby, acx);
+    }
+
+    /**
+     * Compares a*b with c*d exactly, the products are taken to 128 bits
+     * @param a a factor of the first product
+     * @param b the other factor of the first product
+     * @param c a factor of the second product
+     * @param d the other factor of the second product
+     * @return negative if a*b is less than c*d, positive if greater, 0 if they are equal
+     */
+    public static int compareProducts(long a, long b, long c, long d)
+    {
+        long high1 = Math.multiplyHigh(a, b), high2 = Math.multiplyHigh(c, d);
+        if (high1 != high2)
+            return Long.compare(high1, high2);
+        return Long.compareUnsigned(a * b, c * d);
+    }
+
+    /**
+     * Finds exactly where d is from the circle through a, b and c, which must have orientation(a, b, c) > 0
+     * @param ax x-coord of point a
+     * @param ay y-coord of point a
+     * @param bx x-coord of point b
+     * @param by y-coord of point b
+     * @param cx x-coord of point c
+     * @param cy y-coord of point c
+     * @param dx x-coord of point d
+     * @param dy y-coord of point d
+     * @return 1 if d is inside the circle, -1 if it is outside, 0 if it is on it
+     */
+    public static int inCircle(int ax, int ay, int bx, int by, int cx, int cy, int dx, int dy)
+    {
+        long adx = (long) ax - dx, ady = (long) ay - dy;
+        long bdx = (long) bx - dx, bdy = (long) by - dy;
+        long cdx = (long) cx - dx, cdy = (long) cy - dy;
+        double bdxcdy = (double) bdx * cdy, cdxbdy = (double) cdx * bdy;
+        double cdxady = (double) cdx * ady, adxcdy = (double) adx * cdy;
+        double adxbdy = (double) adx * bdy, bdxady = (double) bdx * ady;
+        double alift = (double) adx * adx + (double) ady * ady;
+        double blift = (double) bdx * bdx + (double) bdy * bdy;
+        double clift = (double) cdx * cdx + (double) cdy * cdy;
+        double det = alift * (bdxcdy - cdxbdy) + blift * (cdxady - adxcdy) + clift * (adxbdy - bdxady);
+        double permanent = (Math.abs(bdxcdy) + Math.abs(cdxbdy)) * alift
+                + (Math.abs(cdxady) + Math.abs(adxcdy)) * blift
+                + (Math.abs(adxbdy) + Math.abs(bdxady)) * clift;
+        if (Math.abs(det) > INCIRCLE_ERROR * permanent)
+            return (det > 0) ? 1 : -1;
+        return inCircleExact(adx, ady, bdx, bdy, cdx, cdy);
+    }
+
+    /**
+     * Evaluates the incircle determinant of the points relative to d exactly, the lifted terms need 67 bits
+     * and their products with the cross terms 134, more than multiplyHigh can hold
+     */
+    private static int inCircleExact(long adx, long ady, long bdx, long bdy, long cdx, long cdy)
+    {
+        BigInteger alift = lift(adx, ady), blift = lift(bdx, bdy), clift = lift(cdx, cdy);
+        BigInteger det = alift.multiply(crossExact(bdx, bdy, cdx, cdy))
+                .add(blift.multiply(crossExact(cdx, cdy, adx, ady)))
+                .add(clift.multiply(crossExact(adx, ady, bdx, bdy)));
+        return det.signum();
+    }
+
+    private static BigInteger lift(long x, long y)
+    {
+        BigInteger bx = BigInteger.valueOf(x), by = BigInteger.valueOf(y);
+        return bx.multiply(bx).add(by.multiply(by));
+    }
+
+    private static BigInteger crossExact(long ax, long ay, long bx, long by)
+    {
+        return BigInteger.valueOf(ax).multiply(BigInteger.valueOf(by)).subtract(BigInteger.valueOf(ay).multiply(BigInteger.valueOf(bx)));
+    }
+
+    /**
+     * Determines if point c is to the left of the line from a to b
+     * @return true if c is to the left of a and b, false elsewise.
+     */
+    public static boolean left(int ax, int ay, int bx, int by, int cx, int cy)
+    {
+        return orientation(ax, ay, bx, by, cx, cy) > 0;
+    }
+
+    /**
+     * Determines if point c is collinear with points a and b
+     * @return true if c is on the line through a and b, false elsewise.
+     */
+    public static boolean collinear(int ax, int ay, int bx, int by, int cx, int cy)
+    {
+        return orientation(ax, ay, bx, by, cx, cy) == 0;
+    }
+
+    /**
+     * Determines if point c is on the line segment from a to b
+     * @return true if c is between a and b, false elsewise.
+     */
+    public static boolean between(int ax, int ay, int bx, int by, int cx, int cy)
+    {
+        if (!collinear(ax, ay, bx, by, cx, cy))
+            return false;
+        if (ax != bx)
+            return ((ax <= cx) && (cx <= bx)) ||
+                    ((ax >= cx) && (cx >= bx));
+        return ((ay <= cy) && (cy <= by)) ||
+                ((ay >= cy) && (cy >= by));
+    }
+
+    /**
+     * Determines if the segment from a to b and the segment from c to d intersect, touching counts
+     * @return true if they intersect, false otherwise
+     */
+    public static boolean intersectsProp(int ax, int ay, int bx, int by, int cx, int cy, int dx, int dy)
+    {
+        Metrics.count(Metrics.Counter.INTERSECTS_PROP);
+        boolean abc = collinear(ax, ay, bx, by, cx, cy);
+        boolean abd = collinear(ax, ay, bx, by, dx, dy);
+        if (abc && abd)
+        {
+            return between(ax, ay, bx, by, cx, cy) || between(ax, ay, bx, by, dx, dy);
+        }
+        if (between(ax, ay, bx, by, cx, cy) || between(ax, ay, bx, by, dx, dy)
+                || between(cx, cy, dx, dy, ax, ay) || between(cx, cy, dx, dy, bx, by))
+        {
+            return true;
+        }
+        if (abc || abd || collinear(cx, cy, dx, dy, ax, ay) || collinear(cx, cy, dx, dy, bx, by))
+        {
+            return false;
+        }
+        return (left(ax, ay, bx, by, cx, cy) != left(ax, ay, bx, by, dx, dy))
+                && (left(cx, cy, dx, dy, ax, ay) != left(cx, cy, dx, dy, bx, by));
+    }
+
+    /**
+     * Finds the x-coord at which the line through an edge crosses a horizontal line
+     * @param sx x-coord of the start of the edge
+     * @param sy y-coord of the start of the edge
+     * @param ex x-coord of the end of the edge
+     * @param ey y-coord of the end of the edge, different from sy
+     * @param y the y-coord of the horizontal line
+     * @return the x-coord of the crossing
+     */
+    public static double xAt(int sx, int sy, int ex, int ey, int y)
+    {
+        if (y == sy)
+            return sx;
+        if (y == ey)
+            return ex;
+        return sx + ((double) ex - sx) * ((double) y - sy) / ((double) ey - sy);
+    }
+
+    /**
+     * Finds where a horizontal ray from a point hits an edge, the ray starts one unit from the point so
+     * edges through the point itself are missed, like Edge.linearIntersection
+     * @param px x-coord of the point
+     * @param py y-coord of the point
+     * @param direction -1 for the ray going left, 1 for the ray going right
+     * @param sx x-coord of the start of the edge
+     * @param sy y-coord of the start of the edge
+     * @param ex x-coord of the end of the edge
+     * @param ey y-coord of the end of the edge
+     * @return the x-coord of the hit rounded towards zero, or MISS
+     */
+    public static int rayHit(int px, int py, int direction, int sx, int sy, int ex, int ey)
+    {
+        int rx = px + direction;
+        if ((sx == rx && sy == py) || (ex == rx && ey == py))
+            return rx;
+        if ((sx == px && sy == py) || (ex == px && ey == py))
+            return MISS;
+        if (left(px, py, rx, py, sx, sy) == left(px, py, rx, py, ex, ey))
+            return MISS;
+        double x = xAt(sx, sy, ex, ey, py);
+        if (direction < 0 ? x > rx : x < rx)
+            return MISS;
+        return (int) x;
+    }
+}
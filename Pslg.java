@@ -0,0 +1,100 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A PSLG held in primitive arrays, the form Triangulator.triangulate takes
+ */
+public class Pslg {
+    final int[] xs;
+    final int[] ys;
+    final int[] edgePairs;
+
+    /**
+     * Constructs a PSLG from its coordinates and edges
+     * @param xs the x-coords of the vertices
+     * @param ys the y-coords of the vertices
+     * @param edgePairs the edges as consecutive pairs of vertex indices
+     */
+    public Pslg(int[] xs, int[] ys, int[] edgePairs)
+    {
+        this.xs = xs;
+        this.ys = ys;
+        this.edgePairs = edgePairs;
+    }
+
+    public int size()
+    {
+        return xs.length;
+    }
+
+    public int edgeCount()
+    {
+        return edgePairs.length / 2;
+    }
+
+    /**
+     * Finds two vertices with the same coords in O(n log n), which the sweep does not allow
+     * @return the coords as {x, y}, or null if no two vertices have the same coords
+     */
+    public int[] duplicate()
+    {
+        long[] keys = new long[xs.length];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = EdgeRegistry.key(xs[i], ys[i]);
+        Arrays.sort(keys);
+        for (int i = 1; i < keys.length; i++)
+        {
+            if (keys[i] == keys[i-1])
+                return new int[] {(int) (keys[i] >> 32), (int) keys[i]};
+        }
+        return null;
+    }
+
+    /**
+     * Generates a random PSLG, the same for the same seed. The vertices come in pairs, one pair to each
+     * cell of a square grid, and two thirds of the pairs are joined by an edge, so no two edges cross.
+     * No two vertices have the same y-coord.
+     * @param seed the seed of the random numbers
+     * @param n the number of vertices, rounded down to an even number
+     * @return the PSLG
+     */
+    public static Pslg grid(long seed, int n)
+    {
+        Random random = new Random(seed);
+        int cells = n / 2;
+        int columns = Math.max(1, (int) Math.ceil(Math.sqrt(cells)));
+        int rowHeight = 2 * columns;
+        int[] xs = new int[2 * cells];
+        int[] ys = new int[2 * cells];
+        int[] pairs = new int[2 * cells];
+        int[] slots = new int[rowHeight];
+        int edges = 0;
+        for (int row = 0; row * columns < cells; row++)
+        {
+            for (int i = 0; i < rowHeight; i++)
+                slots[i] = i;
+            for (int i = rowHeight - 1; i > 0; i--)
+            {
+                int j = random.nextInt(i + 1);
+                int temp = slots[i];
+                slots[i] = slots[j];
+                slots[j] = temp;
+            }
+            for (int column = 0; column < columns && row * columns + column < cells; column++)
+            {
+                int k = 2 * (row * columns + column);
+                for (int t = 0; t < 2; t++)
+                {
+                    xs[k + t] = 20 * column + 1 + random.nextInt(18);
+                    ys[k + t] = rowHeight * row + slots[2 * column + t];
+                }
+                if (random.nextInt(3) > 0)
+                {
+                    pairs[edges++] = k;
+                    pairs[edges++] = k + 1;
+                }
+            }
+        }
+        return new Pslg(xs, ys, Arrays.copyOf(pairs, edges));
+    }
+}
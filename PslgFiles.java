@@ -0,0 +1,380 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads PSLGs from files straight into the primitive arrays of a Pslg, without a Vertex or Edge per element.
+ * Triangle's .node and .poly text formats are read, as well as a compact binary format which is read and
+ * written through memory-mapped buffers. A binary file is little-endian ints: MAGIC, the number of vertices
+ * n and of edges m, then the n x-coords, the n y-coords and the 2m vertex indices of the edges. A file with
+ * two vertices at the same coords is rejected.
+ */
+public class PslgFiles {
+    /**
+     * The first int of a binary file, the bytes of "PSLG" read little-endian
+     */
+    static final int MAGIC = 0x474c5350;
+    private static final int HEADER = 12;
+    /**
+     * The most ints mapped at once, a single mapping can not be larger than 2 GB
+     */
+    private static final int CHUNK = 1 << 28;
+
+    private PslgFiles()
+    {
+    }
+
+    /**
+     * Reads a PSLG, in the text format its extension names if it is .node or .poly and in binary otherwise
+     * @param path the file
+     * @return the PSLG
+     * @throws IOException if the file can not be read or is malformed
+     */
+    public static Pslg read(Path path) throws IOException
+    {
+        String name = path.getFileName().toString();
+        if (name.endsWith(".node"))
+            return readNode(path);
+        if (name.endsWith(".poly"))
+            return readPoly(path);
+        return readBinary(path);
+    }
+
+    /**
+     * Reads a PSLG in the binary format by mapping the file and copying each block into its array in bulk
+     * @param path the file
+     * @return the PSLG
+     * @throws IOException if the file can not be read or is malformed
+     */
+    public static Pslg readBinary(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            if (channel.size() < HEADER)
+                throw new IOException(path + " is too short for a PSLG");
+            IntBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            if (header.get(0) != MAGIC)
+                throw new IOException(path + " is not a binary PSLG");
+            int n = header.get(1), m = header.get(2);
+            if (n < 0 || m < 0 || m > Integer.MAX_VALUE / 2 || channel.size() != HEADER + 8L * n + 8L * m)
+                throw new IOException(path + " has the wrong length for " + n + " vertices and " + m + " edges");
+            int[] xs = new int[n], ys = new int[n], edgePairs = new int[2 * m];
+            long offset = HEADER;
+            offset = readInts(channel, offset, xs);
+            offset = readInts(channel, offset, ys);
+            readInts(channel, offset, edgePairs);
+            for (int index : edgePairs)
+            {
+                if (index < 0 || index >= n)
+                    throw new IOException(path + " has an edge to vertex " + index + " of " + n);
+            }
+            return distinct(new Pslg(xs, ys, edgePairs), path);
+        }
+    }
+
+    /**
+     * Reads a PSLG in the binary format straight into a VertexStore, copying the coords from the mapped file
+     * into its columns and building the adjacency from the mapped edges, so with offHeap set the PSLG never
+     * takes room on the heap
+     * @param path the file
+     * @param offHeap whether the store holds its columns off the heap
+     * @return the store
+     * @throws IOException if the file can not be read or is malformed
+     */
+    public static VertexStore readStore(Path path, boolean offHeap) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            if (channel.size() < HEADER)
+                throw new IOException(path + " is too short for a PSLG");
+            IntBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            if (header.get(0) != MAGIC)
+                throw new IOException(path + " is not a binary PSLG");
+            int n = header.get(1), m = header.get(2);
+            if (n < 0 || m < 0 || m > Integer.MAX_VALUE / 2 || channel.size() != HEADER + 8L * n + 8L * m)
+                throw new IOException(path + " has the wrong length for " + n + " vertices and " + m + " edges");
+            IntBuffer xs = VertexStore.allocate(n, offHeap), ys = VertexStore.allocate(n, offHeap);
+            long offset = HEADER;
+            offset = readInts(channel, offset, xs);
+            offset = readInts(channel, offset, ys);
+            IntBuffer[] chunks = new IntBuffer[(int) ((2L * m + CHUNK - 1) / CHUNK)];
+            for (int i = 0; i < chunks.length; i++)
+            {
+                int count = Math.min(CHUNK, 2 * m - i * CHUNK);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, 4L * count).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                offset += 4L * count;
+                for (int j = 0; j < count; j++)
+                {
+                    int index = chunks[i].get(j);
+                    if (index < 0 || index >= n)
+                        throw new IOException(path + " has an edge to vertex " + index + " of " + n);
+                }
+            }
+            return VertexStore.build(xs, ys, 2 * m, i -> chunks[i / CHUNK].get(i % CHUNK), offHeap);
+        }
+    }
+
+    /**
+     * Writes a PSLG in the binary format through mapped buffers
+     * @param pslg the PSLG
+     * @param path the file, replaced if it exists
+     * @throws IOException if the file can not be written
+     */
+    public static void writeBinary(Pslg pslg, Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer()
+                    .put(MAGIC).put(pslg.size()).put(pslg.edgeCount());
+            long offset = HEADER;
+            offset = writeInts(channel, offset, pslg.xs, pslg.size());
+            offset = writeInts(channel, offset, pslg.ys, pslg.size());
+            writeInts(channel, offset, pslg.edgePairs, 2 * pslg.edgeCount());
+        }
+    }
+
+    /**
+     * Reads the triangles written by a TriangleFileWriter
+     * @param path the file
+     * @return the triangles as consecutive triples of vertex indices
+     * @throws IOException if the file can not be read or is malformed
+     */
+    public static int[] readTriangles(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            if (channel.size() < 8)
+                throw new IOException(path + " is too short for triangles");
+            IntBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 8).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            if (header.get(0) != TriangleFileWriter.MAGIC)
+                throw new IOException(path + " is not a triangle file");
+            int count = header.get(1);
+            if (count < 0 || count > Integer.MAX_VALUE / 3 || channel.size() != 8 + 12L * count)
+                throw new IOException(path + " has the wrong length for " + count + " triangles");
+            int[] triangles = new int[3 * count];
+            readInts(channel, 8, triangles);
+            return triangles;
+        }
+    }
+
+    /**
+     * Fills an array with the ints at a position in a file, a chunk at a time
+     * @return the position after the ints
+     */
+    private static long readInts(FileChannel channel, long offset, int[] ints) throws IOException
+    {
+        for (int start = 0; start < ints.length; start += CHUNK)
+        {
+            int count = Math.min(CHUNK, ints.length - start);
+            channel.map(FileChannel.MapMode.READ_ONLY, offset, 4L * count).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer()
+                    .get(ints, start, count);
+            offset += 4L * count;
+        }
+        return offset;
+    }
+
+    /**
+     * Fills a buffer with the ints at a position in a file, a chunk at a time
+     * @return the position after the ints
+     */
+    private static long readInts(FileChannel channel, long offset, IntBuffer ints) throws IOException
+    {
+        for (int start = 0; start < ints.capacity(); start += CHUNK)
+        {
+            int count = Math.min(CHUNK, ints.capacity() - start);
+            ints.put(start, channel.map(FileChannel.MapMode.READ_ONLY, offset, 4L * count).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer(),
+                    0, count);
+            offset += 4L * count;
+        }
+        return offset;
+    }
+
+    /**
+     * Writes the first ints of an array at a position in a file, a chunk at a time
+     * @return the position after the ints
+     */
+    private static long writeInts(FileChannel channel, long offset, int[] ints, int length) throws IOException
+    {
+        for (int start = 0; start < length; start += CHUNK)
+        {
+            int count = Math.min(CHUNK, length - start);
+            channel.map(FileChannel.MapMode.READ_WRITE, offset, 4L * count).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer()
+                    .put(ints, start, count);
+            offset += 4L * count;
+        }
+        return offset;
+    }
+
+    /**
+     * Reads the vertices of a .node file, with no edges. The coords must be whole numbers since the sweep works
+     * on int coords, and attributes and boundary markers are skipped.
+     * @param path the file
+     * @return the PSLG
+     * @throws IOException if the file can not be read or is malformed
+     */
+    public static Pslg readNode(Path path) throws IOException
+    {
+        try (BufferedReader reader = Files.newBufferedReader(path))
+        {
+            Records records = new Records(reader, path);
+            int[][] vertices = readVertices(records, records.next());
+            return distinct(new Pslg(vertices[0], vertices[1], new int[0]), path);
+        }
+    }
+
+    /**
+     * Reads the vertices and segments of a .poly file. If it lists no vertices they are read from the .node
+     * file of the same name, and the holes at the end are skipped.
+     * @param path the file
+     * @return the PSLG
+     * @throws IOException if the file can not be read or is malformed
+     */
+    public static Pslg readPoly(Path path) throws IOException
+    {
+        try (BufferedReader reader = Files.newBufferedReader(path))
+        {
+            Records records = new Records(reader, path);
+            String[] header = records.next();
+            int[][] vertices;
+            if (records.integer(header, 0) == 0)
+            {
+                String name = path.getFileName().toString();
+                Path node = path.resolveSibling(name.substring(0, name.length() - ".poly".length()) + ".node");
+                try (BufferedReader nodeReader = Files.newBufferedReader(node))
+                {
+                    Records nodeRecords = new Records(nodeReader, node);
+                    vertices = readVertices(nodeRecords, nodeRecords.next());
+                }
+            }
+            else
+                vertices = readVertices(records, header);
+            int n = vertices[0].length;
+            int first = vertices[2][0];
+            int m = records.integer(records.next(), 0);
+            int[] edgePairs = new int[2 * m];
+            for (int i = 0; i < m; i++)
+            {
+                String[] segment = records.next();
+                for (int end = 0; end < 2; end++)
+                {
+                    int index = records.integer(segment, 1 + end) - first;
+                    if (index < 0 || index >= n)
+                        throw records.malformed("segment " + segment[0] + " ends at a missing vertex");
+                    edgePairs[2*i+end] = index;
+                }
+            }
+            return distinct(new Pslg(vertices[0], vertices[1], edgePairs), path);
+        }
+    }
+
+    /**
+     * Checks that no two vertices of a PSLG read from a file have the same coords, which the sweep does not allow
+     * @return the PSLG
+     * @throws IOException if two vertices have the same coords
+     */
+    private static Pslg distinct(Pslg pslg, Path path) throws IOException
+    {
+        int[] duplicate = pslg.duplicate();
+        if (duplicate != null)
+            throw new IOException(path + " has two vertices at (" + duplicate[0] + "," + duplicate[1] + ")");
+        return pslg;
+    }
+
+    /**
+     * Reads the vertex records after a .node header
+     * @return the x-coords, the y-coords and, as a single entry, the number of the first vertex
+     */
+    private static int[][] readVertices(Records records, String[] header) throws IOException
+    {
+        int n = records.integer(header, 0);
+        if (header.length > 1 && records.integer(header, 1) != 2)
+            throw records.malformed("only two dimensions are supported");
+        int[] xs = new int[n], ys = new int[n];
+        int first = 0;
+        for (int i = 0; i < n; i++)
+        {
+            String[] vertex = records.next();
+            int number = records.integer(vertex, 0);
+            if (i == 0)
+                first = number;
+            else if (number != first + i)
+                throw records.malformed("vertex " + number + " is out of order");
+            xs[i] = records.coord(vertex, 1);
+            ys[i] = records.coord(vertex, 2);
+        }
+        return new int[][] {xs, ys, {first}};
+    }
+
+    /**
+     * The lines of a Triangle text file split into fields, with comments and blank lines skipped
+     */
+    private static final class Records {
+        private final BufferedReader reader;
+        private final Path path;
+        private int line;
+
+        Records(BufferedReader reader, Path path)
+        {
+            this.reader = reader;
+            this.path = path;
+        }
+
+        String[] next() throws IOException
+        {
+            String text;
+            while ((text = reader.readLine()) != null)
+            {
+                line++;
+                int comment = text.indexOf('#');
+                if (comment >= 0)
+                    text = text.substring(0, comment);
+                text = text.trim();
+                if (!text.isEmpty())
+                    return text.split("\\s+");
+            }
+            throw malformed("the file ends early");
+        }
+
+        int integer(String[] fields, int i) throws IOException
+        {
+            try {
+                return Integer.parseInt(field(fields, i));
+            } catch (NumberFormatException e) {
+                throw malformed("'" + fields[i] + "' is not an integer");
+            }
+        }
+
+        int coord(String[] fields, int i) throws IOException
+        {
+            double value;
+            try {
+                value = Double.parseDouble(field(fields, i));
+            } catch (NumberFormatException e) {
+                throw malformed("'" + fields[i] + "' is not a number");
+            }
+            if (!(Math.abs(value) <= Integer.MAX_VALUE))
+                throw malformed(fields[i] + " is too large for an int coord");
+            if (value != Math.rint(value))
+                throw malformed(fields[i] + " is not a whole number, the coords must be ints");
+            return (int) value;
+        }
+
+        private String field(String[] fields, int i) throws IOException
+        {
+            if (i >= fields.length)
+                throw malformed("a field is missing");
+            return fields[i];
+        }
+
+        IOException malformed(String problem)
+        {
+            return new IOException(path + ":" + line + ": " + problem);
+        }
+    }
+}
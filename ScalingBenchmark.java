@@ -0,0 +1,163 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures how the parallel parts of the triangulation scale with the number of cores, run with
+ * java ScalingBenchmark [mountains] [vertices per mountain] [sweep vertices]
+ */
+public class ScalingBenchmark {
+
+    /**
+     * Runs the benchmarks
+     * @param args the number of mountains and their size, 2000 mountains of 500 vertices if left out, then
+     * the size of the PSLG swept in slabs, 1000000 vertices if left out
+     */
+    public static void main(String[] args) throws InterruptedException, ExecutionException
+    {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+        int size = (args.length > 1) ? Integer.parseInt(args[1]) : 500;
+        int vertices = (args.length > 2) ? Integer.parseInt(args[2]) : 1_000_000;
+        mountains(count, size);
+        System.out.println();
+        sweep(vertices);
+    }
+
+    /**
+     * Triangulates the same mountains sequentially and then in fork-join pools of 1, 2, 4... cores up to the
+     * number available, checking the parallel result is the same as the sequential one
+     * @param count the number of mountains
+     * @param size the number of vertices of each mountain
+     */
+    public static void mountains(int count, int size) throws InterruptedException, ExecutionException
+    {
+        Random random = new Random(1);
+        ArrayList<SimplePolygon> mountains = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            mountains.add(mountain(random, size));
+        Triangulator triangulator = new Triangulator();
+        int[][] expected = triangulator.triangulateMountains(mountains);
+        long sequential = best(() -> triangulator.triangulateMountains(mountains));
+        System.out.println(String.format("%d mountains of %d vertices", count, size));
+        System.out.println(String.format("%-15s%-15s%-15s", "cores", "ms", "speedup"));
+        System.out.println(String.format("%-15s%-15.1f%-15.2f", "sequential", sequential / 1e6, 1.0));
+        triangulator.parallel = true;
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int cores = 1; cores <= processors; cores = (cores < processors) ? Math.min(2 * cores, processors) : cores + 1)
+        {
+            ForkJoinPool pool = new ForkJoinPool(cores);
+            try
+            {
+                int[][] found = pool.submit(() -> triangulator.triangulateMountains(mountains)).get();
+                long time = best(() -> pool.submit(() -> triangulator.triangulateMountains(mountains)).join());
+                if (!Arrays.deepEquals(expected, found))
+                    System.out.println("the parallel triangulation differs from the sequential one");
+                System.out.println(String.format("%-15d%-15.1f%-15.2f", cores, time / 1e6, (double) sequential / time));
+            }
+            finally
+            {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Sweeps the same PSLG from Pslg.grid sequentially and then in slabs on fork-join pools of 1, 2, 4... cores
+     * up to the number available, SLABS_PER_CORE slabs a core, checking the edges found are the same. The
+     * times include loading the PSLG and setUpSweep, which are sequential either way.
+     * @param n the number of vertices
+     */
+    public static void sweep(int n) throws InterruptedException, ExecutionException
+    {
+        Pslg pslg = Pslg.grid(1, n);
+        int[] expected = sweepEdges(pslg, 0);
+        long sequential = best(() -> sweepEdges(pslg, 0));
+        System.out.println(String.format("sweep of %d vertices", pslg.size()));
+        System.out.println(String.format("%-15s%-15s%-15s%-15s", "cores", "slabs", "ms", "speedup"));
+        System.out.println(String.format("%-15s%-15d%-15.1f%-15.2f", "sequential", 1, sequential / 1e6, 1.0));
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int cores = 1; cores <= processors; cores = (cores < processors) ? Math.min(2 * cores, processors) : cores + 1)
+        {
+            ForkJoinPool pool = new ForkJoinPool(cores);
+            int slabs = SlabSweep.SLABS_PER_CORE * cores;
+            try
+            {
+                int[] found = pool.submit(() -> sweepEdges(pslg, slabs)).get();
+                long time = best(() -> pool.submit(() -> sweepEdges(pslg, slabs)).join());
+                if (!Arrays.equals(expected, found))
+                    System.out.println("the slab sweep differs from the sequential one");
+                System.out.println(String.format("%-15d%-15d%-15.1f%-15.2f", cores, slabs, time / 1e6, (double) sequential / time));
+            }
+            finally
+            {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Sweeps a PSLG with a new triangulator
+     * @param pslg the PSLG
+     * @param slabs the number of slabs, 0 for the sequential sweep
+     * @return the ends of the edges found, in order, as indices into the mesh
+     */
+    private static int[] sweepEdges(Pslg pslg, int slabs)
+    {
+        Triangulator triangulator = new Triangulator();
+        triangulator.trace = null;
+        triangulator.load(pslg.xs, pslg.ys, pslg.edgePairs);
+        triangulator.setUpSweep();
+        if (slabs == 0)
+        {
+            while (triangulator.sweepEvent < triangulator.vertices.size())
+                triangulator.sweepNext();
+        }
+        else
+            SlabSweep.sweep(triangulator, slabs);
+        int[] ends = new int[2 * triangulator.edges.size()];
+        for (int i = 0; i < triangulator.edges.size(); i++)
+        {
+            ends[2 * i] = triangulator.edges.get(i).getStart().getIndex();
+            ends[2 * i + 1] = triangulator.edges.get(i).getEnd().getIndex();
+        }
+        return ends;
+    }
+
+    /**
+     * Times a task, after running it twice to warm up
+     * @param task the task
+     * @return the shortest time of five runs in nanoseconds
+     */
+    private static long best(Runnable task)
+    {
+        task.run();
+        task.run();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++)
+        {
+            long time = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - time);
+        }
+        return best;
+    }
+
+    /**
+     * Makes a monotone mountain, a chain going down the screen with random x-coords to the right of
+     * its base, the vertical edge joining its ends
+     * @param random the random numbers
+     * @param size the number of vertices
+     * @return the mountain
+     */
+    private static SimplePolygon mountain(Random random, int size)
+    {
+        ArrayList<Vertex> chain = new ArrayList<>();
+        chain.add(new Vertex(0, 0));
+        for (int y = 1; y < size - 1; y++)
+            chain.add(new Vertex(1 + random.nextInt(1000), y));
+        chain.add(new Vertex(0, size - 1));
+        return new SimplePolygon(chain);
+    }
+}
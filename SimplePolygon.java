@@ -1,5 +1,6 @@
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Objects;
 
@@ -9,7 +10,6 @@ public class SimplePolygon {
     boolean clockwise;
     int[][] coordsArray;
     Vertex top, bottom;
-    public static Color[] colors = {new Color(170,170,170),new Color(200,100,100),new Color(100,200,100),new Color(100,100,200)};
 
     /**
      * Constructs a SimplePolygon from an array of vertices
@@ -38,9 +38,8 @@ public class SimplePolygon {
         {
             if (vertex.getY()<lowest.getY()||(vertex.getY()==lowest.getY()&&vertex.getX()<lowest.getX()))
                 lowest = vertex;
-            vertex.setColor(colors[0]);
         }
-        clockwise = left(lowest.getCoordsArr(),lowest.getPrev().getCoordsArr(),lowest.getNext().getCoordsArr());
+        clockwise = Predicates.left(lowest.getX(),lowest.getY(),lowest.getPrev().getX(),lowest.getPrev().getY(),lowest.getNext().getX(),lowest.getNext().getY());
     }
     /**
      * Constructs a SimplePolygon from a list of vertices
@@ -63,12 +62,10 @@ public class SimplePolygon {
                 bottom = vertex;
             if (vertex.getY()>top.getY())
                 top = vertex;
-            vertex.setColor(colors[0]);
         }
-        clockwise = left(bottom.getCoordsArr(),bottom.getPrev().getCoordsArr(),bottom.getNext().getCoordsArr());
+        clockwise = Predicates.left(bottom.getX(),bottom.getY(),bottom.getPrev().getX(),bottom.getPrev().getY(),bottom.getNext().getX(),bottom.getNext().getY());
         if (clockwise)
         {
-            System.out.println("Reverse Reverse" + this);
             Collections.reverse(this.vertices);
             Collections.reverse(this.edges);
             for (Edge edge : this.edges)
@@ -120,19 +117,7 @@ public class SimplePolygon {
      */
     public static boolean intersectsProp(int[] a, int[] b, int[] c, int[] d)
     {
-        if (collinear(a,b,c) && collinear(a,b,d))
-        {
-            return (between(a,b,c)||between(a,b,d));
-        }
-        if ((between(a,b,c)||between(a,b,d)||between(c,d,a)||between(c,d,b)))
-        {
-            return true;
-        }
-        if (collinear(a,b,c) || collinear(a,b,d) || collinear (c, d, a) || collinear(c,d,b))
-        {
-            return false;
-        }
-        return (left(a,b,c) != left(a,b,d)) && (left(c,d,a) != left(c,d,b));
+        return Predicates.intersectsProp(a[0],a[1],b[0],b[1],c[0],c[1],d[0],d[1]);
     }
     /**
      * Determines if a point is between two other points (all collinear)
@@ -143,13 +128,7 @@ public class SimplePolygon {
      */
     public static boolean between(int[]a, int[] b, int[] c)
     {
-        if (!collinear(a,b,c))
-            return false;
-        if (a[0] != b[0])
-            return ((a[0] <= c[0]) && (c[0] <=b[0])) ||
-                    ((a[0] >= c[0]) && (c[0] >= b[0]));
-        return ((a[1] <= c[1]) && (c[1] <= b[1])) ||
-                ((a[1] >= c[1]) && (c[1] >= b[1]));
+        return Predicates.between(a[0],a[1],b[0],b[1],c[0],c[1]);
     }
     /**
      * Determines if a point is to the left of two other points
@@ -159,7 +138,7 @@ public class SimplePolygon {
      * @return true if c is to the left of a and b, false elsewise.
      */
     public static boolean left(int[]a, int[] b, int[] c) {
-        return crossProduct(a,b,a,c) > 0;
+        return Predicates.left(a[0],a[1],b[0],b[1],c[0],c[1]);
     }
 
     /**
@@ -170,7 +149,7 @@ public class SimplePolygon {
      * @return true if c is to the left of a and b, false elsewise.
      */
     public static boolean collinear(int[]a, int[] b, int[] c) {
-        return crossProduct(a,b,a,c) == 0;
+        return Predicates.collinear(a[0],a[1],b[0],b[1],c[0],c[1]);
     }
     /**
      * Determines signed area of the parallelogram with points a,b,c,d
@@ -180,9 +159,9 @@ public class SimplePolygon {
      * @param d coordinates of point d
      * @return signed area of the parallelogram with points a,b,c,d
      */
-    public static int crossProduct(int[] a, int[] b, int[] c, int[]d)
+    public static long crossProduct(int[] a, int[] b, int[] c, int[]d)
     {
-        return (b[0] - a[0]) * (d[1] - c[1]) - (b[1] - a[1]) * (d[0] - c[0]);
+        return ((long) b[0] - a[0]) * ((long) d[1] - c[1]) - ((long) b[1] - a[1]) * ((long) d[0] - c[0]);
     }
 
     @Override
@@ -191,47 +170,193 @@ public class SimplePolygon {
                 "vertices=");
         for (Vertex vertex: vertices)
         {
-            str.append(Main.gpanel.vertices.indexOf(vertex)+1).append(",");
+            str.append(vertex).append(",");
         }
         return str+"}";
     }
 
+    /**
+     * Triangulates the polygon, making a new SimplePolygon for each triangle
+     * @return the triangles
+     */
     public ArrayList<SimplePolygon> triangulate()
+    {
+        return triangles(triangulateIndices());
+    }
+
+    /**
+     * Makes a new SimplePolygon for each triangle found by triangulateIndices
+     * @param triangles the triangles as consecutive triples of indices into the vertex list
+     * @return the triangles
+     */
+    public ArrayList<SimplePolygon> triangles(int[] triangles)
     {
         ArrayList<SimplePolygon> faces = new ArrayList<>();
-        int i = vertices.indexOf(top)+1;
-        while (vertices.size()>3&&i++<200)
+        for (int i = 0; i < triangles.length; i += 3)
         {
-            SimplePolygon triangle = clipConvex(i% vertices.size());
-            if (triangle != null)
-            {
-                faces.add(triangle);
-            }
+            faces.add(new SimplePolygon(new Vertex[] {vertices.get(triangles[i]),vertices.get(triangles[i+1]),vertices.get(triangles[i+2])}));
         }
         return faces;
     }
 
-    public SimplePolygon clipConvex(int i)
+    /**
+     * Triangulates the polygon as a monotone mountain in O(n), see triangulateIndices(xs, ys)
+     * @return the triangles as consecutive triples of indices into the vertex list
+     */
+    public int[] triangulateIndices()
     {
-        Vertex vertex = vertices.get(i);
-        Vertex vPrev = vertices.get((i-1+ vertices.size())% vertices.size());
-        Vertex vNext = vertices.get((i+1)% vertices.size());
-        if (vertex == top||vertex == bottom||left(vPrev.getCoordsArr(),vNext.getCoordsArr(),vertex.getCoordsArr()))
-            return null;
-        Vertex[] triangle = {vPrev,vertex,vNext};
-        int index = vertices.indexOf(vPrev);
-        SimplePolygon face = new SimplePolygon(triangle);
-        Edge prev = edges.get(index);
-        Edge next = edges.get((index+1)%vertices.size());
-        edges.remove(prev);
-        edges.remove(next);
-        vertices.remove(vertex);
-        Edge newEdge = Edge.polygonalEdge(vPrev,vNext);
-        if (index > edges.size())
-            edges.add(newEdge);
+        int[] xs = new int[vertices.size()], ys = new int[vertices.size()];
+        for (int i = 0; i < xs.length; i++)
+        {
+            xs[i] = vertices.get(i).getX();
+            ys[i] = vertices.get(i).getY();
+        }
+        return triangulateIndices(xs, ys);
+    }
+
+    /**
+     * Triangulates the polygon as a monotone mountain in O(n). The chain opposite the base edge is walked
+     * from one end of the base to the other keeping a stack of reflex vertices, and every vertex that
+     * becomes convex is clipped at once, since in a monotone mountain every convex vertex is an ear.
+     * The polygon's orientation is the turn at its lowest vertex, which is exact and never flat.
+     * <p>
+     * Polygons which are not mountains, whose highest and lowest vertices are not joined by an edge, are ear
+     * clipped in O(n^2) instead, counted by Metrics.Counter.EAR_CLIPS. The mountains of the sweep never are,
+     * as their base joins their extremes in the (y, x) order of the events.
+     * @param xs the x-coords of the polygon's vertices in order
+     * @param ys the y-coords of the polygon's vertices in order
+     * @return the triangles as consecutive triples of indices into the coords
+     */
+    public static int[] triangulateIndices(int[] xs, int[] ys)
+    {
+        int n = xs.length;
+        if (n < 3)
+            return new int[0];
+        int[] triangles = new int[3*(n-2)];
+        int count = 0;
+        int lowest = 0, highest = 0;
+        for (int i = 1; i < n; i++)
+        {
+            if (compareHeight(xs, ys, i, lowest) < 0)
+                lowest = i;
+            if (compareHeight(xs, ys, i, highest) > 0)
+                highest = i;
+        }
+        int orientation = turn(xs, ys, (lowest+n-1)%n, lowest, (lowest+1)%n);
+        int[] stack = new int[n];
+        int size = 0;
+        int first;
+        if ((highest+1)%n == lowest)
+            first = lowest;
+        else if ((lowest+1)%n == highest)
+            first = highest;
         else
-            edges.add(index,newEdge);
-        return face;
+        {
+            for (int i = 0; i < n; i++)
+                stack[i] = i;
+            count = clipEars(xs, ys, stack, n, orientation, triangles, count);
+            return (count == triangles.length) ? triangles : Arrays.copyOf(triangles, count);
+        }
+        for (int k = 0; k < n; k++)
+        {
+            int current = (first+k)%n;
+            while (size >= 2 && orientation*turn(xs, ys, stack[size-2], stack[size-1], current) > 0)
+            {
+                triangles[count++] = stack[size-2];
+                triangles[count++] = stack[size-1];
+                triangles[count++] = current;
+                size--;
+            }
+            stack[size++] = current;
+        }
+        if (size > 3)
+            count = clipEars(xs, ys, stack, size, orientation, triangles, count);
+        return (count == triangles.length) ? triangles : Arrays.copyOf(triangles, count);
+    }
+
+    /**
+     * Ear clips a polygon given as a list of indices into the coords, used for what is left over if
+     * the polygon is not a monotone mountain
+     * @param xs the x-coords of the vertices
+     * @param ys the y-coords of the vertices
+     * @param polygon the indices of the polygon's vertices in order
+     * @param size the number of vertices in the polygon
+     * @param orientation the sign of the polygon's signed area
+     * @param triangles the array the triangles are written to
+     * @param count the number of indices already in the triangle array
+     * @return the number of indices in the triangle array afterwards
+     */
+    private static int clipEars(int[] xs, int[] ys, int[] polygon, int size, int orientation, int[] triangles, int count)
+    {
+        Metrics.count(Metrics.Counter.EAR_CLIPS);
+        int[] next = new int[size];
+        int[] prev = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            next[i] = (i+1)%size;
+            prev[i] = (i-1+size)%size;
+        }
+        int i = 0;
+        int sinceClip = 0;
+        while (size > 3 && sinceClip < size)
+        {
+            int a = polygon[prev[i]], b = polygon[i], c = polygon[next[i]];
+            boolean ear = orientation*turn(xs, ys, a, b, c) > 0;
+            for (int j = next[next[i]]; ear && j != prev[i]; j = next[j])
+            {
+                int d = polygon[j];
+                ear = orientation*turn(xs, ys, a, b, d) < 0 || orientation*turn(xs, ys, b, c, d) < 0 || orientation*turn(xs, ys, c, a, d) < 0;
+            }
+            if (ear)
+            {
+                triangles[count++] = a;
+                triangles[count++] = b;
+                triangles[count++] = c;
+                next[prev[i]] = next[i];
+                prev[next[i]] = prev[i];
+                size--;
+                sinceClip = 0;
+            }
+            else
+                sinceClip++;
+            i = next[i];
+        }
+        if (size == 3 && orientation*turn(xs, ys, polygon[prev[i]], polygon[i], polygon[next[i]]) > 0)
+        {
+            triangles[count++] = polygon[prev[i]];
+            triangles[count++] = polygon[i];
+            triangles[count++] = polygon[next[i]];
+        }
+        return count;
+    }
+
+    /**
+     * Orders vertices by y-coord, then by x-coord
+     * @param xs the x-coords of the vertices
+     * @param ys the y-coords of the vertices
+     * @param a the index of a vertex
+     * @param b the index of another vertex
+     * @return negative if a is lower than b, positive if higher
+     */
+    private static int compareHeight(int[] xs, int[] ys, int a, int b)
+    {
+        if (ys[a] != ys[b])
+            return Integer.compare(ys[a], ys[b]);
+        return Integer.compare(xs[a], xs[b]);
+    }
+
+    /**
+     * Finds which way a polygon turns at three of its vertices
+     * @param xs the x-coords of the vertices
+     * @param ys the y-coords of the vertices
+     * @param a the index of the first vertex
+     * @param b the index of the second vertex
+     * @param c the index of the third vertex
+     * @return the sign of the cross product of b-a and c-b
+     */
+    private static int turn(int[] xs, int[] ys, int a, int b, int c)
+    {
+        return Predicates.orientation(xs[a], ys[a], xs[b], ys[b], xs[c], ys[c]);
     }
 
     @Override
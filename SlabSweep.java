@@ -0,0 +1,185 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the trapezoidalization sweep of a Triangulator in horizontal slabs of events concurrently.
+ * <p>
+ * Slabs are cut between two rows of events, so the status where a slab starts is just the edges crossing a
+ * horizontal line, found from their end y-coords without sweeping. The helpers of the gaps between them are
+ * only known once the slabs above are swept, so a slab starts with a placeholder for each and sweeps its
+ * events with them, only reading the mesh. Once every slab is done the placeholders are resolved from the top
+ * slab down, each to the helper the slab above left in the same gap, and the diagonals and trapezoidalization
+ * lines are added in event order, so the edges and the mesh come out exactly as from the sequential sweep.
+ */
+public class SlabSweep {
+    /**
+     * How many slabs to cut for each core, so a slab with few events to the line does not leave a core idle
+     */
+    static final int SLABS_PER_CORE = 4;
+    /**
+     * The fewest events in a slab, below this finding its starting status costs more than sweeping it saves
+     */
+    static final int SLAB_MINIMUM = 4096;
+
+    private final Triangulator triangulator;
+    private final int from, to;
+    private final SweepLineStatus status = new SweepLineStatus();
+    private final ArrayList<Edge> crossing = new ArrayList<>();
+    /**
+     * The index of the gap at the top of the slab each placeholder stands for
+     */
+    private final IdentityHashMap<Vertex,Integer> placeholders = new IdentityHashMap<>();
+    /**
+     * The edge just left of each gap at the top of the slab, null for the gap left of every edge
+     */
+    private Edge[] gapEdges;
+    private Vertex[] resolved;
+    private final ArrayList<ArrayList<SweepLineStatus.Gap>> helpers = new ArrayList<>();
+    private int[] lines;
+
+    private SlabSweep(Triangulator triangulator, int from, int to)
+    {
+        this.triangulator = triangulator;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Finds how many threads a parallel stream started here would use
+     * @return the parallelism of the fork-join pool this thread is in, or of the common pool
+     */
+    static int parallelism()
+    {
+        ForkJoinPool pool = ForkJoinTask.getPool();
+        return (pool != null) ? pool.getParallelism() : ForkJoinPool.getCommonPoolParallelism();
+    }
+
+    /**
+     * Runs the whole sweep of a triangulator in slabs
+     * @param triangulator the triangulator, with setUpSweep done and no event processed
+     * @param slabs how many slabs to aim for, fewer are used where rows of events with the same y-coord span
+     * the cuts
+     */
+    static void sweep(Triangulator triangulator, int slabs)
+    {
+        long start = System.nanoTime();
+        ArrayList<Vertex> vertices = triangulator.vertices;
+        int n = vertices.size();
+        int[] starts = new int[Math.max(1, slabs)];
+        int count = 1;
+        for (int k = 1; k < starts.length; k++)
+        {
+            int cut = Math.max((int) ((long) k * n / starts.length), starts[count-1] + 1);
+            while (cut < n && vertices.get(cut-1).getY() == vertices.get(cut).getY())
+                cut++;
+            if (cut < n)
+                starts[count++] = cut;
+        }
+        SlabSweep[] sweeps = new SlabSweep[count];
+        int[] lineYs = new int[count];
+        for (int k = 0; k < count; k++)
+        {
+            sweeps[k] = new SlabSweep(triangulator, starts[k], (k + 1 < count) ? starts[k+1] : n);
+            lineYs[k] = (k == 0) ? Integer.MIN_VALUE : vertices.get(starts[k]-1).getY();
+        }
+        for (Edge edge : triangulator.edges)
+        {
+            int top = Math.min(edge.getStart().getY(), edge.getEnd().getY());
+            int bottom = Math.max(edge.getStart().getY(), edge.getEnd().getY());
+            if (top == bottom)
+                continue;
+            int k = Arrays.binarySearch(lineYs, 1, count, top);
+            for (k = (k < 0) ? -k - 1 : k; k < count && lineYs[k] < bottom; k++)
+                sweeps[k].crossing.add(edge);
+        }
+        IntStream.range(0, count).parallel().forEach(k -> sweeps[k].run(lineYs[k]));
+        for (int k = 1; k < count; k++)
+            sweeps[k].resolve(sweeps[k-1]);
+        for (SlabSweep sweep : sweeps)
+            sweep.finish();
+        triangulator.sweepLineStatus = sweeps[count-1].status;
+        Metrics.time(Main.PhaseType.SWEEP, start);
+    }
+
+    /**
+     * Sweeps the events of the slab, recording the helpers above each and its trapezoidalization line
+     * @param lineY the y-coord of the line between the slab and the one above
+     */
+    private void run(int lineY)
+    {
+        status.setSweepY(lineY);
+        for (Edge edge : crossing)
+            status.add(edge);
+        if (from > 0)
+        {
+            gapEdges = new Edge[crossing.size() + 1];
+            int gap = 1;
+            for (Edge edge : status.getEdges())
+                gapEdges[gap++] = edge;
+            for (gap = 0; gap < gapEdges.length; gap++)
+            {
+                Vertex placeholder = new Vertex(0,0);
+                placeholders.put(placeholder, gap);
+                status.setHelper(gapEdges[gap], placeholder);
+            }
+        }
+        lines = new int[2 * (to - from)];
+        for (int e = from; e < to; e++)
+        {
+            Vertex event = triangulator.vertices.get(e);
+            Metrics.count(Metrics.Counter.EVENTS);
+            status.setSweepY(event.getY());
+            int[] line = triangulator.trapezoidLine(status, event);
+            helpers.add(status.helpers(event));
+            triangulator.advance(status, event);
+            Metrics.statusSize(status.size());
+            lines[2 * (e - from)] = line[0];
+            lines[2 * (e - from) + 1] = line[1];
+        }
+    }
+
+    /**
+     * Resolves the placeholders of the slab to the helpers the slab above left in the same gaps
+     * @param above the slab above, already resolved
+     */
+    private void resolve(SlabSweep above)
+    {
+        resolved = new Vertex[gapEdges.length];
+        for (int gap = 0; gap < gapEdges.length; gap++)
+            resolved[gap] = above.real(above.status.getHelper(gapEdges[gap]));
+    }
+
+    /**
+     * Finds the vertex a helper of the slab stands for
+     * @param helper a vertex or a placeholder
+     * @return the vertex, or null if the gap it stands for had no helper
+     */
+    private Vertex real(Vertex helper)
+    {
+        Integer gap = placeholders.get(helper);
+        return (gap == null) ? helper : resolved[gap];
+    }
+
+    /**
+     * Adds the diagonals and trapezoidalization lines of the slab's events to the triangulator in event order
+     */
+    private void finish()
+    {
+        for (int e = from; e < to; e++)
+        {
+            ArrayList<SweepLineStatus.Gap> found = new ArrayList<>();
+            for (SweepLineStatus.Gap gap : helpers.get(e - from))
+            {
+                Vertex vertex = real(gap.helper);
+                if (vertex != null && !SweepLineStatus.containsIdentical(found, vertex))
+                    found.add((vertex == gap.helper) ? gap : new SweepLineStatus.Gap(vertex, gap.left, gap.right));
+            }
+            triangulator.sweepEvent = e + 1;
+            triangulator.finishEvent(triangulator.vertices.get(e), found, lines[2 * (e - from)], lines[2 * (e - from) + 1]);
+        }
+    }
+}
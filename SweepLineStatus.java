@@ -0,0 +1,373 @@
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.TreeSet;
+
+/**
+ * The sweep line status of the trapezoidalization sweep, keeps the edges crossing the sweep line
+ * ordered by their x-coordinate at the current y of the sweep line. Each gap between consecutive
+ * edges also has a helper, the last event whose trapezoidalization line spans the gap.
+ */
+public class SweepLineStatus {
+    private final TreeSet<Edge> edges;
+    private final IdentityHashMap<Edge,Vertex> helpers;
+    private Vertex leftmostHelper;
+    private int sweepY;
+    /**
+     * Stands for the point (probeX, sweepY) in lookups, so that finding the neighbours of a vertex allocates nothing
+     */
+    private final Edge probe;
+    private int probeX;
+
+    public SweepLineStatus()
+    {
+        edges = new TreeSet<>(this::compare);
+        helpers = new IdentityHashMap<>();
+        Vertex origin = new Vertex(0,0);
+        probe = new Edge(origin, origin);
+    }
+
+    /**
+     * Moves the sweep line, must be called before the status is queried or changed at a new event
+     * @param y the y-coord of the event being processed
+     */
+    public void setSweepY(int y)
+    {
+        sweepY = y;
+    }
+
+    /**
+     * Adds an edge to the status, horizontal edges never cross the sweep line so they are left out
+     * @param edge the edge starting at the current event
+     */
+    public void add(Edge edge)
+    {
+        if (edge.getStart().getY() == edge.getEnd().getY())
+            return;
+        edges.add(edge);
+    }
+
+    /**
+     * Removes an edge from the status
+     * @param edge the edge ending at the current event
+     */
+    public void remove(Edge edge)
+    {
+        edges.remove(edge);
+        helpers.remove(edge);
+    }
+
+    /**
+     * Finds the helpers of the gaps just above a vertex, these are the tops of the trapezoids with the
+     * vertex on their bottom so each of them can be joined to the vertex by a diagonal
+     * @param vertex the event being processed, before its edges are removed from the status
+     * @return the gaps with distinct helpers from left to right, the helpers told apart by identity
+     */
+    public ArrayList<Gap> helpers(Vertex vertex)
+    {
+        ArrayList<Gap> found = new ArrayList<>();
+        Edge edge = lower(vertex);
+        Edge last = higher(vertex);
+        do {
+            Vertex helper = (edge == null) ? leftmostHelper : helpers.get(edge);
+            Edge right = (edge == null) ? first() : edges.higher(edge);
+            if (helper != null && !containsIdentical(found, helper))
+                found.add(new Gap(helper, edge, right));
+            edge = right;
+        } while (edge != null && edge != last);
+        return found;
+    }
+
+    /**
+     * Makes a vertex the helper of every gap its trapezoidalization line spans
+     * @param vertex the event being processed, after its edges have been added to the status
+     */
+    public void setHelper(Vertex vertex)
+    {
+        Edge edge = lower(vertex);
+        Edge last = higher(vertex);
+        do {
+            if (edge == null)
+                leftmostHelper = vertex;
+            else
+                helpers.put(edge, vertex);
+            edge = (edge == null) ? first() : edges.higher(edge);
+        } while (edge != null && edge != last);
+    }
+
+    /**
+     * Gets the helper of the gap just right of an edge
+     * @param edge an edge in the status, or null for the gap left of every edge
+     * @return the helper, or null if the gap has none
+     */
+    Vertex getHelper(Edge edge)
+    {
+        return (edge == null) ? leftmostHelper : helpers.get(edge);
+    }
+
+    /**
+     * Sets the helper of the gap just right of an edge, for a status that starts part way down the sweep
+     * @param edge an edge in the status, or null for the gap left of every edge
+     * @param helper the helper
+     */
+    void setHelper(Edge edge, Vertex helper)
+    {
+        if (edge == null)
+            leftmostHelper = helper;
+        else
+            helpers.put(edge, helper);
+    }
+
+    /**
+     * Tests if a list holds a gap with a vertex itself as its helper rather than one equal to it, since a slab
+     * of SlabSweep stands for the helpers it does not know yet by vertices that all have the same coords
+     */
+    static boolean containsIdentical(ArrayList<Gap> gaps, Vertex helper)
+    {
+        for (Gap gap : gaps)
+        {
+            if (gap.helper == helper)
+                return true;
+        }
+        return false;
+    }
+
+    private Edge first()
+    {
+        return edges.isEmpty() ? null : edges.first();
+    }
+
+    /**
+     * Finds the closest edge strictly to the left of a vertex on the sweep line
+     * @param vertex the vertex on the sweep line
+     * @return the edge, or null if there is none
+     */
+    public Edge lower(Vertex vertex)
+    {
+        probeX = vertex.getX();
+        return edges.lower(probe);
+    }
+
+    /**
+     * Finds the closest edge strictly to the right of a vertex on the sweep line
+     * @param vertex the vertex on the sweep line
+     * @return the edge, or null if there is none
+     */
+    public Edge higher(Vertex vertex)
+    {
+        probeX = vertex.getX();
+        return edges.higher(probe);
+    }
+
+    /**
+     * Finds the next edge to the left of an edge in the status
+     * @param edge an edge in the status
+     * @return the edge, or null if there is none
+     */
+    public Edge lower(Edge edge)
+    {
+        return edges.lower(edge);
+    }
+
+    /**
+     * Finds the next edge to the right of an edge in the status
+     * @param edge an edge in the status
+     * @return the edge, or null if there is none
+     */
+    public Edge higher(Edge edge)
+    {
+        return edges.higher(edge);
+    }
+
+    /**
+     * Gets the edges crossing the sweep line
+     * @return the edges from left to right
+     */
+    public Iterable<Edge> getEdges()
+    {
+        return Collections.unmodifiableSet(edges);
+    }
+
+    public int size()
+    {
+        return edges.size();
+    }
+
+    /**
+     * Orders two edges by where they cross the sweep line. The probe is placed by the exact orientation
+     * predicate. Other edges meeting at a vertex on the sweep line are ordered with the ones ending at it before
+     * the ones going on below it, then by where they are just above it or just below it, and last by their end
+     * coords, so the order is total and the same on every run.
+     * @param a an edge
+     * @param b another edge
+     * @return negative if a is left of b, positive if it is right of b, 0 if they are the same edge
+     */
+    private int compare(Edge a, Edge b)
+    {
+        if (a == b)
+            return 0;
+        if (a == probe)
+            return compareToProbe(b);
+        if (b == probe)
+            return -compareToProbe(a);
+        int comparison = compareCrossings(a, b);
+        if (comparison != 0)
+            return comparison;
+        boolean belowA = bottomY(a) > sweepY, belowB = bottomY(b) > sweepY;
+        if (belowA != belowB)
+            return belowA ? 1 : -1;
+        comparison = belowA ? compareSlopes(a, b) : compareSlopes(b, a);
+        if (comparison != 0)
+            return comparison;
+        return compareEnds(a, b);
+    }
+
+    /**
+     * Compares the point (probeX, sweepY) with where an edge crosses the sweep line
+     * @param edge an edge in the status, not horizontal
+     * @return negative if the point is left of the edge, positive if it is right of it, 0 if it is on it
+     */
+    private int compareToProbe(Edge edge)
+    {
+        Vertex top = top(edge), bottom = bottom(edge);
+        return -Predicates.orientation(top.getX(), top.getY(), bottom.getX(), bottom.getY(), probeX, sweepY);
+    }
+
+    /**
+     * Compares where two edges cross the sweep line, first in floating point and exactly if they are too close
+     * @return negative if a crosses to the left of b, 0 if they cross at the same point
+     */
+    private int compareCrossings(Edge a, Edge b)
+    {
+        double difference = approximateX(a) - approximateX(b);
+        if (Math.abs(difference) > error(a) + error(b))
+            return (difference < 0) ? -1 : 1;
+        BigInteger[] xa = exactX(a), xb = exactX(b);
+        return xa[0].multiply(xb[1]).compareTo(xb[0].multiply(xa[1]));
+    }
+
+    /**
+     * Finds roughly where an edge crosses the sweep line
+     */
+    private double approximateX(Edge edge)
+    {
+        Vertex top = top(edge), bottom = bottom(edge);
+        if (top.getY() == bottom.getY())
+            return top.getX();
+        return Predicates.xAt(top.getX(), top.getY(), bottom.getX(), bottom.getY(), sweepY);
+    }
+
+    /**
+     * Bounds the rounding error of approximateX generously
+     */
+    private double error(Edge edge)
+    {
+        Vertex top = top(edge), bottom = bottom(edge);
+        if (top.getY() == bottom.getY())
+            return 0;
+        double slope = Math.abs(((double) bottom.getX() - top.getX()) / ((double) bottom.getY() - top.getY()));
+        return 0x1p-45 * (Math.abs((double) top.getX()) + (Math.abs((double) sweepY) + Math.abs((double) top.getY())) * slope);
+    }
+
+    /**
+     * Finds exactly where an edge crosses the sweep line
+     * @return the x-coord as a numerator and a positive denominator
+     */
+    private BigInteger[] exactX(Edge edge)
+    {
+        Vertex top = top(edge), bottom = bottom(edge);
+        if (top.getY() == bottom.getY())
+            return new BigInteger[] {BigInteger.valueOf(top.getX()), BigInteger.ONE};
+        BigInteger dx = BigInteger.valueOf((long) bottom.getX() - top.getX());
+        BigInteger dy = BigInteger.valueOf((long) bottom.getY() - top.getY());
+        BigInteger numerator = BigInteger.valueOf(top.getX()).multiply(dy)
+                .add(dx.multiply(BigInteger.valueOf((long) sweepY - top.getY())));
+        return new BigInteger[] {numerator, dy};
+    }
+
+    /**
+     * Orders two edges by the coords of their ends, the lower end first, so that only the same segment is equal
+     * @param a an edge
+     * @param b another edge
+     * @return negative, positive, or 0 if they join the same two points
+     */
+    private static int compareEnds(Edge a, Edge b)
+    {
+        long lowA = Math.min(EdgeRegistry.key(a.getStart()), EdgeRegistry.key(a.getEnd()));
+        long lowB = Math.min(EdgeRegistry.key(b.getStart()), EdgeRegistry.key(b.getEnd()));
+        if (lowA != lowB)
+            return Long.compare(lowA, lowB);
+        return Long.compare(Math.max(EdgeRegistry.key(a.getStart()), EdgeRegistry.key(a.getEnd())),
+                Math.max(EdgeRegistry.key(b.getStart()), EdgeRegistry.key(b.getEnd())));
+    }
+
+    /**
+     * Orders two edges through a common point by where they are just below it
+     * @param a an edge, not horizontal
+     * @param b another edge, not horizontal
+     * @return negative if a is left of b below the point, positive if it is right of it
+     */
+    private static int compareSlopes(Edge a, Edge b)
+    {
+        long dxA = (long) a.getEnd().getX() - a.getStart().getX();
+        long dyA = (long) a.getEnd().getY() - a.getStart().getY();
+        long dxB = (long) b.getEnd().getX() - b.getStart().getX();
+        long dyB = (long) b.getEnd().getY() - b.getStart().getY();
+        if (dyA < 0)
+        {
+            dxA = -dxA;
+            dyA = -dyA;
+        }
+        if (dyB < 0)
+        {
+            dxB = -dxB;
+            dyB = -dyB;
+        }
+        return Predicates.compareProducts(dxA, dyB, dxB, dyA);
+    }
+
+    private static Vertex top(Edge edge)
+    {
+        return (edge.getStart().getY() <= edge.getEnd().getY()) ? edge.getStart() : edge.getEnd();
+    }
+
+    private static Vertex bottom(Edge edge)
+    {
+        return (edge.getStart().getY() <= edge.getEnd().getY()) ? edge.getEnd() : edge.getStart();
+    }
+
+    private static int bottomY(Edge edge)
+    {
+        return Math.max(edge.getStart().getY(), edge.getEnd().getY());
+    }
+
+    @Override
+    public String toString() {
+        return edges.toString();
+    }
+
+    /**
+     * A gap of the status just above an event, with the edges on either side of it as they were at the event.
+     * While a vertex stays the helper of a gap its sides are the ones they were when it became the helper, so
+     * a diagonal through the gap can be linked into the mesh next to them at both of its ends.
+     */
+    static final class Gap {
+        final Vertex helper;
+        /**
+         * The edge just left of the gap, null if there is none
+         */
+        final Edge left;
+        /**
+         * The edge just right of the gap, null if there is none
+         */
+        final Edge right;
+
+        Gap(Vertex helper, Edge left, Edge right)
+        {
+            this.helper = helper;
+            this.left = left;
+            this.right = right;
+        }
+    }
+}
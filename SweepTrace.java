@@ -0,0 +1,116 @@
+/**
+ * Records what the sweep did at its most recent events for AlgebraPanel to show. Each event is kept as a
+ * few ints in a ring buffer, with edges known by their index in the mesh, and is only formatted as a row of
+ * text when it is shown. Only the leftmost STATUS_LIMIT edges of the sweep line status are kept, so an event
+ * costs the same to record however many edges cross the sweep line.
+ */
+public class SweepTrace {
+    /**
+     * The number of events kept by default, more than fit in AlgebraPanel
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+    /**
+     * The most edges of the sweep line status kept for an event
+     */
+    public static final int STATUS_LIMIT = 8;
+    /**
+     * Stands for the left or right side of the frame instead of an edge
+     */
+    public static final int FRAME = -1;
+    private static final String FORMAT = "%-20s%-25s%-20s";
+    private final int capacity;
+    private final int[] events, lefts, rights, statusSizes, statusEdges;
+    private long recorded;
+
+    public SweepTrace()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty trace
+     * @param capacity the number of events kept, older events are overwritten
+     */
+    public SweepTrace(int capacity)
+    {
+        this.capacity = Math.max(1, capacity);
+        events = new int[this.capacity];
+        lefts = new int[this.capacity];
+        rights = new int[this.capacity];
+        statusSizes = new int[this.capacity];
+        statusEdges = new int[this.capacity * STATUS_LIMIT];
+    }
+
+    /**
+     * Records an event, overwriting the oldest one kept if the trace is full
+     * @param event the number of the event
+     * @param left the index of the edge the ray to the left of the event hit, or FRAME
+     * @param right the index of the edge the ray to the right of the event hit, or FRAME
+     * @param status the edges crossing the sweep line after the event from left to right
+     * @param statusSize the number of edges in status
+     */
+    public void record(int event, int left, int right, Iterable<Edge> status, int statusSize)
+    {
+        int slot = (int) (recorded++ % capacity);
+        events[slot] = event;
+        lefts[slot] = left;
+        rights[slot] = right;
+        statusSizes[slot] = statusSize;
+        int i = 0;
+        for (Edge edge : status)
+        {
+            if (i == STATUS_LIMIT)
+                break;
+            statusEdges[slot * STATUS_LIMIT + i++] = edge.getHalfEdge()/2;
+        }
+    }
+
+    /**
+     * Gets the number of events kept, at most the capacity
+     * @return the number of rows
+     */
+    public int size()
+    {
+        return (int) Math.min(recorded, capacity);
+    }
+
+    public void clear()
+    {
+        recorded = 0;
+    }
+
+    /**
+     * Gets the column headings of the rows
+     * @return the header row
+     */
+    public static String header()
+    {
+        return String.format(FORMAT, "Event", "SLS", "Pointers");
+    }
+
+    /**
+     * Formats a kept event as a row of the table in AlgebraPanel, edges are labelled as in the GUI
+     * @param i the row, 0 for the oldest event kept up to size()-1 for the latest
+     * @return the row
+     */
+    public String row(int i)
+    {
+        if (i < 0 || i >= size())
+            throw new IndexOutOfBoundsException("row " + i + " of " + size());
+        int slot = (int) ((recorded - size() + i) % capacity);
+        int kept = Math.min(statusSizes[slot], STATUS_LIMIT);
+        StringBuilder status = new StringBuilder("[");
+        for (int j = 0; j < kept; j++)
+        {
+            if (j > 0)
+                status.append(", ");
+            status.append(statusEdges[slot * STATUS_LIMIT + j] + 1);
+        }
+        if (statusSizes[slot] > kept)
+            status.append(", ... ").append(statusSizes[slot] - kept).append(" more");
+        status.append(']');
+        String pointers = "L=" + ((lefts[slot] == FRAME) ? "left" : lefts[slot]);
+        pointers += ",R=" + ((rights[slot] == FRAME) ? "right" : rights[slot]);
+        return String.format(FORMAT, events[slot], status, pointers);
+    }
+}
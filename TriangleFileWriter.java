@@ -0,0 +1,102 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes triangles to a file as they are found, through a direct buffer that goes out to the channel whenever
+ * it fills, so only the buffer is held in memory. The file is little-endian ints: MAGIC, the number of
+ * triangles, then the three vertex indices of each triangle. The number is filled in by close.
+ */
+public class TriangleFileWriter implements TriangleSink, Closeable {
+    /**
+     * The first int of a triangle file, the bytes of "TRIS" read little-endian
+     */
+    static final int MAGIC = 0x53495254;
+    private static final int HEADER = 8;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private int count;
+
+    /**
+     * Opens a file for triangles
+     * @param path the file, replaced if it exists
+     * @throws IOException if the file can not be opened
+     */
+    public TriangleFileWriter(Path path) throws IOException
+    {
+        this(path, 1 << 16);
+    }
+
+    /**
+     * Opens a file for triangles
+     * @param path the file, replaced if it exists
+     * @param bufferSize the size of the buffer in bytes, at least 12 for one triangle, rounded down to whole
+     * triangles
+     * @throws IOException if the file can not be opened
+     * @throws IllegalArgumentException if the buffer can not hold a triangle
+     */
+    public TriangleFileWriter(Path path, int bufferSize) throws IOException
+    {
+        if (bufferSize < 12)
+            throw new IllegalArgumentException("a buffer of " + bufferSize + " bytes can not hold a triangle");
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        buffer = ByteBuffer.allocateDirect(Math.max(HEADER, bufferSize - bufferSize % 12)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(0);
+    }
+
+    /**
+     * Adds a triangle to the buffer, writing the buffer out first if it is full
+     * @throws UncheckedIOException if the buffer can not be written
+     */
+    @Override
+    public void accept(int a, int b, int c)
+    {
+        if (count == Integer.MAX_VALUE)
+            throw new IllegalStateException("too many triangles for one file");
+        if (buffer.remaining() < 12)
+        {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        buffer.putInt(a).putInt(b).putInt(c);
+        count++;
+    }
+
+    public int count()
+    {
+        return count;
+    }
+
+    private void flush() throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Writes out the rest of the triangles and their number, and closes the file
+     * @throws IOException if they can not be written
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try {
+            flush();
+            buffer.putInt(count).flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer, 4 + buffer.position());
+        } finally {
+            channel.close();
+        }
+    }
+}
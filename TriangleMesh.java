@@ -0,0 +1,172 @@
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * A triangulation as an indexed mesh in primitive arrays. The coords are one pair of int columns shared by
+ * every triangle, triangle t has the vertices triangles[3t], triangles[3t+1] and triangles[3t+2]
+ * counterclockwise, and neighbours[3t+i] is the triangle across its side from vertex i to vertex i+1, or -1
+ * on the hull. So the mesh can be walked from triangle to triangle without building any topology.
+ * <p>
+ * The footprint is 24 bytes a triangle plus 8 bytes a vertex, about 28 bytes a triangle since a
+ * triangulation has about twice as many triangles as vertices. A SimplePolygon triangle takes several
+ * hundred, with its lists, its three new Edges and its coordinate arrays.
+ */
+public final class TriangleMesh {
+    private final int[] xs, ys;
+    private final int[] triangles;
+    private final int[] neighbours;
+
+    /**
+     * Builds the mesh of some triangles, turning each counterclockwise and finding the neighbours in O(n)
+     * @param xs the x-coords of the vertices, kept rather than copied
+     * @param ys the y-coords of the vertices, kept rather than copied
+     * @param triangles the triangles as consecutive triples of vertex indices, none of them flat, kept and
+     * reordered in place
+     */
+    public TriangleMesh(int[] xs, int[] ys, int[] triangles)
+    {
+        this.xs = xs;
+        this.ys = ys;
+        this.triangles = triangles;
+        orient(xs, ys, triangles);
+        int[] across = acrossSides(triangles);
+        neighbours = new int[across.length];
+        for (int s = 0; s < across.length; s++)
+            neighbours[s] = (across[s] == -1) ? -1 : across[s] / 3;
+    }
+
+    /**
+     * Builds the mesh of the triangles found by Triangulator.triangulate(xs, ys, edgePairs), with the corners of
+     * Triangulator.frame(xs, ys) added to the coords as vertices xs.length to xs.length+3
+     * @param xs the x-coords of the vertices
+     * @param ys the y-coords of the vertices
+     * @param triangles the triangles as consecutive triples of vertex indices
+     * @return the mesh
+     */
+    public static TriangleMesh framed(int[] xs, int[] ys, int[] triangles)
+    {
+        int[][] coords = Triangulator.withFrame(xs, ys);
+        return new TriangleMesh(coords[0], coords[1], triangles);
+    }
+
+    /**
+     * Turns every triangle counterclockwise, swapping its last two vertices if it is clockwise
+     * @param xs the x-coords of the vertices
+     * @param ys the y-coords of the vertices
+     * @param triangles the triangles as consecutive triples of vertex indices
+     */
+    static void orient(int[] xs, int[] ys, int[] triangles)
+    {
+        for (int t = 0; t < triangles.length; t += 3)
+        {
+            if (Predicates.orientation(xs[triangles[t]], ys[triangles[t]], xs[triangles[t+1]], ys[triangles[t+1]],
+                    xs[triangles[t+2]], ys[triangles[t+2]]) < 0)
+            {
+                int swap = triangles[t+1];
+                triangles[t+1] = triangles[t+2];
+                triangles[t+2] = swap;
+            }
+        }
+    }
+
+    /**
+     * Pairs up the sides of the triangles, side i of triangle t being side 3t+i from its vertex i to vertex i+1
+     * @param triangles the triangles as consecutive triples of vertex indices
+     * @return the side across each side, or -1 for a side on the hull
+     */
+    static int[] acrossSides(int[] triangles)
+    {
+        int[] across = new int[triangles.length];
+        Arrays.fill(across, -1);
+        EdgeRegistry sides = new EdgeRegistry(triangles.length / 2 + 2);
+        for (int s = 0; s < triangles.length; s++)
+        {
+            int end = triangles[(s % 3 == 2) ? s - 2 : s + 1];
+            int other = sides.get(triangles[s], end);
+            if (other == EdgeRegistry.MISSING)
+            {
+                sides.put(triangles[s], end, s);
+                continue;
+            }
+            across[s] = other;
+            across[other] = s;
+        }
+        return across;
+    }
+
+    public int vertexCount()
+    {
+        return xs.length;
+    }
+
+    public int triangleCount()
+    {
+        return triangles.length / 3;
+    }
+
+    public int getX(int v)
+    {
+        return xs[v];
+    }
+
+    public int getY(int v)
+    {
+        return ys[v];
+    }
+
+    /**
+     * Gets a vertex of a triangle
+     * @param t the triangle
+     * @param i which vertex, 0 to 2 counterclockwise
+     * @return the index of the vertex
+     */
+    public int vertex(int t, int i)
+    {
+        return triangles[3 * t + i];
+    }
+
+    /**
+     * Gets the triangle across a side of a triangle
+     * @param t the triangle
+     * @param i which side, the one from vertex i to vertex i+1
+     * @return the triangle, or -1 if the side is on the hull
+     */
+    public int neighbour(int t, int i)
+    {
+        return neighbours[3 * t + i];
+    }
+
+    /**
+     * Copies the triangles out
+     * @return the triangles as consecutive counterclockwise triples of vertex indices
+     */
+    public int[] triangles()
+    {
+        return triangles.clone();
+    }
+
+    /**
+     * Gets the number of bytes the arrays take
+     * @return the footprint
+     */
+    public long bytes()
+    {
+        return 4L * (xs.length + ys.length + triangles.length + neighbours.length);
+    }
+
+    /**
+     * Draws every edge of the mesh once, from the triangle on the hull side or with the smaller index
+     * @param g the graphics object being used to draw
+     */
+    public void paint(Graphics g)
+    {
+        g.setColor(Color.BLACK);
+        for (int s = 0; s < triangles.length; s++)
+        {
+            if (neighbours[s] >= s / 3)
+                continue;
+            int a = triangles[s], b = triangles[(s % 3 == 2) ? s - 2 : s + 1];
+            g.drawLine(xs[a], ys[a], xs[b], ys[b]);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * Receives the triangles of a triangulation one at a time, as vertex indices
+ */
+@FunctionalInterface
+public interface TriangleSink {
+    /**
+     * Takes a triangle
+     * @param a the index of a vertex
+     * @param b the index of the next vertex
+     * @param c the index of the last vertex
+     */
+    void accept(int a, int b, int c);
+}
@@ -0,0 +1,353 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Remembers the triangles of the PSLGs triangulated through it, so a PSLG sent again is answered without the
+ * sweep. A PSLG is known by its vertex coords in order and its edges in any order or direction, though an edge
+ * given a different number of times makes a different PSLG here, which only costs a miss. The PSLG is hashed
+ * to 64 bits straight from the arrays it is given, the edges by a sum so their order does not matter, and only
+ * on a hit is it compared with the entry in full, so a hash collision can not return another PSLG's
+ * triangles. The arrays are only copied when an entry is added.
+ * <p>
+ * The cache is a least recently used map bounded by bytes rather than entries, as a PSLG of a million vertices
+ * weighs as much as thousands of small ones. An entry is weighed by the arrays it holds, the PSLG and the
+ * triangles, and one heavier than the whole bound is not kept. A miss streams its triangles to the sink as the
+ * sweep finds them, keeping a copy only while it still fits the bound. It is safe to share between threads,
+ * the triangulation of a miss runs outside the lock and a thread missing on a PSLG another thread is already
+ * triangulating waits for its entry rather than computing it again.
+ */
+public class TriangulationCache {
+    /**
+     * The bytes counted for an entry on top of its arrays, for the map node, the entry and the array headers
+     */
+    static final int ENTRY_OVERHEAD = 128;
+    private final long maxBytes;
+    private final LinkedHashMap<Long,Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * The hashes of the PSLGs being triangulated for a miss, each with a latch opened once it is done. Waiting
+     * on a latch rather than on the cache's monitor does not pin the virtual threads of BatchTriangulator.
+     */
+    private final HashMap<Long,CountDownLatch> pending = new HashMap<>();
+    private long bytes;
+    private long hits, misses, evictions;
+
+    /**
+     * Constructs an empty cache
+     * @param maxBytes the most bytes the entries may weigh together
+     */
+    public TriangulationCache(long maxBytes)
+    {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Triangulates a PSLG like Triangulator.triangulate(xs, ys, edgePairs, parallel), or finds its triangles
+     * if it was triangulated before
+     * @param xs the x-coords of the vertices, no two vertices may have the same coords
+     * @param ys the y-coords of the vertices
+     * @param edgePairs the edges as consecutive pairs of vertex indices
+     * @param parallel whether a miss sweeps in slabs and triangulates the mountains concurrently
+     * @return a copy of the triangles as consecutive triples of vertex indices
+     */
+    public int[] triangulate(int[] xs, int[] ys, int[] edgePairs, boolean parallel)
+    {
+        long hash = hash(xs, ys, edgePairs);
+        int[] found = lookUp(hash, xs, ys, edgePairs);
+        if (found != null)
+            return found.clone();
+        Collector all = new Collector(Long.MAX_VALUE);
+        triangulateMiss(hash, xs, ys, edgePairs, parallel, all);
+        return Arrays.copyOf(all.triangles, all.size);
+    }
+
+    /**
+     * Triangulates a PSLG like Triangulator.triangulate(xs, ys, edgePairs, parallel, sink), or passes its
+     * triangles to the sink from the cache if it was triangulated before
+     * @param xs the x-coords of the vertices, no two vertices may have the same coords
+     * @param ys the y-coords of the vertices
+     * @param edgePairs the edges as consecutive pairs of vertex indices
+     * @param parallel whether a miss sweeps in slabs and triangulates the mountains concurrently
+     * @param sink takes the triangles as indices into xs, or xs.length to xs.length+3 for the corners
+     */
+    public void triangulate(int[] xs, int[] ys, int[] edgePairs, boolean parallel, TriangleSink sink)
+    {
+        long hash = hash(xs, ys, edgePairs);
+        int[] found = lookUp(hash, xs, ys, edgePairs);
+        if (found != null)
+        {
+            for (int i = 0; i < found.length; i += 3)
+                sink.accept(found[i], found[i+1], found[i+2]);
+            return;
+        }
+        triangulateMiss(hash, xs, ys, edgePairs, parallel, sink);
+    }
+
+    /**
+     * Triangulates a PSLG after lookUp missed on it, streaming the triangles to the sink and adding them as an
+     * entry if they fit, then lets the threads waiting on its hash look it up again
+     */
+    private void triangulateMiss(long hash, int[] xs, int[] ys, int[] edgePairs, boolean parallel, TriangleSink sink)
+    {
+        try {
+            Collector kept = new Collector(maxBytes - weight(xs, ys, edgePairs, 0));
+            Triangulator.triangulate(xs, ys, edgePairs, parallel, (a, b, c) -> {
+                sink.accept(a, b, c);
+                kept.accept(a, b, c);
+            });
+            if (kept.triangles != null)
+                put(hash, new Entry(xs.clone(), ys.clone(), edgePairs.clone(), Arrays.copyOf(kept.triangles, kept.size)));
+        } finally {
+            synchronized (this)
+            {
+                pending.remove(hash).countDown();
+            }
+        }
+    }
+
+    /**
+     * Finds the triangles of a PSLG, waiting while another thread triangulates a PSLG of the same hash. The
+     * PSLG is compared with the entry outside the lock. On a miss the hash is marked pending, and the caller
+     * must call triangulateMiss.
+     * @return the triangles, not to be changed, or null on a miss
+     */
+    private int[] lookUp(long hash, int[] xs, int[] ys, int[] edgePairs)
+    {
+        boolean interrupted = false;
+        try {
+            while (true)
+            {
+                Entry entry;
+                synchronized (this)
+                {
+                    entry = entries.get(hash);
+                }
+                if (entry != null && entry.matches(xs, ys, edgePairs))
+                {
+                    synchronized (this)
+                    {
+                        hits++;
+                    }
+                    return entry.triangles;
+                }
+                CountDownLatch running;
+                synchronized (this)
+                {
+                    if (entries.get(hash) != entry)
+                        continue;
+                    running = pending.get(hash);
+                    if (running == null)
+                    {
+                        pending.put(hash, new CountDownLatch(1));
+                        misses++;
+                        return null;
+                    }
+                }
+                try {
+                    running.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Adds an entry and evicts the least recently used ones until the entries fit again
+     */
+    private synchronized void put(long hash, Entry entry)
+    {
+        long weight = entry.weight();
+        if (weight > maxBytes)
+            return;
+        Entry replaced = entries.put(hash, entry);
+        if (replaced != null)
+            bytes -= replaced.weight();
+        bytes += weight;
+        Iterator<Map.Entry<Long,Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes)
+        {
+            Map.Entry<Long,Entry> evicted = eldest.next();
+            bytes -= evicted.getValue().weight();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private static long weight(int[] xs, int[] ys, int[] edgePairs, int triangles)
+    {
+        return ENTRY_OVERHEAD + 4L * (xs.length + ys.length + edgePairs.length + triangles);
+    }
+
+    /**
+     * Empties the cache, the statistics are kept
+     */
+    public synchronized void clear()
+    {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Reads the statistics of the cache
+     * @return the statistics
+     */
+    public synchronized Stats stats()
+    {
+        return new Stats(hits, misses, evictions, entries.size(), bytes);
+    }
+
+    /**
+     * Finds the hash of a PSLG in O(n) without allocating, the same for the same coords and edges in any order
+     * or direction. The coords are hashed in order and the edges packed as the smaller index then the larger
+     * and summed after scrambling each, so that reordering them leaves the sum as it is.
+     * @param xs the x-coords of the vertices
+     * @param ys the y-coords of the vertices
+     * @param edgePairs the edges as consecutive pairs of vertex indices
+     * @return the hash
+     */
+    public static long hash(int[] xs, int[] ys, int[] edgePairs)
+    {
+        long h = mix(xs.length);
+        for (int i = 0; i < xs.length; i++)
+            h = mix(h ^ EdgeRegistry.key(xs[i], ys[i]));
+        long sum = 0;
+        for (int i = 0; i + 1 < edgePairs.length; i += 2)
+            sum += mix(edge(edgePairs[i], edgePairs[i+1]));
+        return mix(h ^ mix(sum ^ edgePairs.length));
+    }
+
+    /**
+     * Packs an edge as the smaller index then the larger in a long, the same in either direction
+     */
+    private static long edge(int a, int b)
+    {
+        return (long) Math.min(a, b) << 32 | Math.max(a, b);
+    }
+
+    /**
+     * Scrambles the bits of a long, the finalizer of MurmurHash3
+     */
+    private static long mix(long h)
+    {
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * A cached PSLG, as it was first given, and its triangles
+     */
+    private static final class Entry {
+        final int[] xs, ys, edgePairs;
+        final int[] triangles;
+
+        Entry(int[] xs, int[] ys, int[] edgePairs, int[] triangles)
+        {
+            this.xs = xs;
+            this.ys = ys;
+            this.edgePairs = edgePairs;
+            this.triangles = triangles;
+        }
+
+        long weight()
+        {
+            return TriangulationCache.weight(xs, ys, edgePairs, triangles.length);
+        }
+
+        /**
+         * Determines if a PSLG is the one cached. Its edges are compared as given first, and only sorted if
+         * they come in another order or direction.
+         */
+        boolean matches(int[] xs, int[] ys, int[] edgePairs)
+        {
+            if (!Arrays.equals(this.xs, xs) || !Arrays.equals(this.ys, ys) || this.edgePairs.length != edgePairs.length)
+                return false;
+            return Arrays.equals(this.edgePairs, edgePairs) || Arrays.equals(sorted(this.edgePairs), sorted(edgePairs));
+        }
+
+        private static long[] sorted(int[] edgePairs)
+        {
+            long[] packed = new long[edgePairs.length / 2];
+            for (int i = 0; i < packed.length; i++)
+                packed[i] = edge(edgePairs[2 * i], edgePairs[2 * i + 1]);
+            Arrays.sort(packed);
+            return packed;
+        }
+    }
+
+    /**
+     * Keeps the triangles passed to it in a growing array, giving up and dropping them once they would weigh
+     * more than a bound
+     */
+    private static final class Collector implements TriangleSink {
+        private final long maxBytes;
+        int[] triangles = new int[48];
+        int size;
+
+        Collector(long maxBytes)
+        {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void accept(int a, int b, int c)
+        {
+            if (triangles == null)
+                return;
+            if (size + 3 > triangles.length)
+            {
+                if (4L * (size + 3) > maxBytes)
+                {
+                    triangles = null;
+                    return;
+                }
+                triangles = Arrays.copyOf(triangles, 2 * triangles.length);
+            }
+            triangles[size++] = a;
+            triangles[size++] = b;
+            triangles[size++] = c;
+        }
+    }
+
+    /**
+     * The statistics of a cache at one moment
+     */
+    public static final class Stats {
+        public final long hits, misses, evictions;
+        public final int entries;
+        public final long bytes;
+
+        private Stats(long hits, long misses, long evictions, int entries, long bytes)
+        {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.entries = entries;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Gets the fraction of lookups that were hits
+         * @return the hit rate, 0 if there were no lookups
+         */
+        public double hitRate()
+        {
+            long lookups = hits + misses;
+            return (lookups == 0) ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%d hits, %d misses (%.1f%% hit rate), %d evictions, %d entries of %d bytes",
+                    hits, misses, 100 * hitRate(), evictions, entries, bytes);
+        }
+    }
+}
@@ -0,0 +1,409 @@
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Checks the triangulation on PSLGs that broke it once and on random PSLGs, run with java TriangulationCheck
+ * [seeds]. The random PSLGs have vertices of high degree, half of them on a small grid so that many vertices
+ * share a y-coord and half with coords up to 10^9. Each is triangulated twice sequentially and once in
+ * parallel, and the three runs must give the same triangles in the same order. These must be 2n+2 triangles
+ * turning the same way that cover the frame exactly, use no side more than twice and keep every edge of the
+ * PSLG, and every mountain must be triangulated by the linear walk, without falling back to ear clipping.
+ * <p>
+ * LiveTriangulation is checked with random sequences of vertex and segment additions and removals, after each
+ * of which its triangles must cover the frame exactly, 2n+2 of them, and every segment must be made of edges
+ * of the triangulation that are not diagonals. BatchTriangulator is checked to fail the files whose PSLGs have
+ * crossing edges, two vertices at the same coords or coords that are not ints, leaving no triangle file for
+ * them. Exits with status 1
+ * if any check fails.
+ */
+public class TriangulationCheck {
+
+    /**
+     * Runs the checks
+     * @param args the number of random PSLGs and edit sequences, 1000 if left out
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        int seeds = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+        int failures = pslgs(seeds) + edits(seeds) + batch();
+        System.out.println(failures + " failures");
+        if (failures > 0)
+            System.exit(1);
+    }
+
+    /**
+     * PSLGs that broke the triangulation once, checked before the random ones. The first has two edges that
+     * cross the sweep lines of its events less than a rounding error apart.
+     */
+    static final Pslg[] REGRESSIONS = {
+        new Pslg(new int[] {0, 1000000001, 1, 1000000000, 516548029, 0},
+                new int[] {0, 1000000000, 0, 999999999, 368843514, 999999999}, new int[] {0, 1, 2, 3}),
+    };
+
+    /**
+     * Triangulates the regressions and random PSLGs twice sequentially and once in parallel, printing the name
+     * of each that fails
+     * @param seeds the number of random PSLGs, made from the seeds 0 to seeds-1
+     * @return the number of failed triangulations
+     */
+    public static int pslgs(int seeds)
+    {
+        int failures = 0;
+        for (int k = 0; k < REGRESSIONS.length; k++)
+            failures += runs("regression " + k, REGRESSIONS[k]);
+        for (int seed = 0; seed < seeds; seed++)
+            failures += runs("seed " + seed, randomPslg(new Random(seed)));
+        return failures;
+    }
+
+    /**
+     * Triangulates a PSLG twice sequentially and once in parallel, printing what is wrong with each failed run
+     * @param name the name of the PSLG in the output
+     * @param pslg the PSLG
+     * @return the number of failed runs
+     */
+    private static int runs(String name, Pslg pslg)
+    {
+        int failures = 0;
+        int[] first = null;
+        for (boolean parallel : new boolean[] {false, false, true})
+        {
+            Metrics.reset();
+            int[] triangles = Triangulator.triangulate(pslg.xs, pslg.ys, pslg.edgePairs, parallel);
+            String problem = check(pslg, triangles);
+            if (problem == null && Metrics.snapshot().count(Metrics.Counter.EAR_CLIPS) > 0)
+                problem = "a mountain was ear clipped";
+            if (problem == null && first != null && !Arrays.equals(first, triangles))
+                problem = "different triangles from the first run";
+            first = triangles;
+            if (problem != null)
+            {
+                failures++;
+                System.out.println(name + (parallel ? " in parallel: " : ": ") + problem);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Makes a random PSLG by adding random edges between random vertices whenever they cross no edge and pass
+     * through no vertex, so that most vertices end up with three or more edges
+     * @param random the random numbers
+     * @return the PSLG
+     */
+    static Pslg randomPslg(Random random)
+    {
+        int n = 3 + random.nextInt(60);
+        int range = random.nextBoolean() ? 4 + random.nextInt(20) : 1_000_000_000;
+        n = (int) Math.min(n, (long) range * range / 2);
+        int[] xs = new int[n], ys = new int[n];
+        HashSet<Long> used = new HashSet<>();
+        for (int i = 0; i < n; i++)
+        {
+            do {
+                xs[i] = random.nextInt(range);
+                ys[i] = random.nextInt(range);
+            } while (!used.add(EdgeRegistry.key(xs[i], ys[i])));
+        }
+        ArrayList<Integer> pairs = new ArrayList<>();
+        HashSet<Long> edges = new HashSet<>();
+        for (int attempt = 0; attempt < 6 * n; attempt++)
+        {
+            int a = random.nextInt(n), b = random.nextInt(n);
+            if (a == b || !edges.add(EdgeRegistry.key(Math.min(a, b), Math.max(a, b))))
+                continue;
+            boolean clear = true;
+            for (int v = 0; v < n && clear; v++)
+                clear = v == a || v == b || !Predicates.between(xs[a], ys[a], xs[b], ys[b], xs[v], ys[v]);
+            for (int k = 0; k < pairs.size() && clear; k += 2)
+            {
+                int c = pairs.get(k), d = pairs.get(k + 1);
+                if (c == a || c == b || d == a || d == b)
+                    continue;
+                clear = !Predicates.intersectsProp(xs[a], ys[a], xs[b], ys[b], xs[c], ys[c], xs[d], ys[d]);
+            }
+            if (clear)
+            {
+                pairs.add(a);
+                pairs.add(b);
+            }
+        }
+        int[] edgePairs = new int[pairs.size()];
+        for (int k = 0; k < edgePairs.length; k++)
+            edgePairs[k] = pairs.get(k);
+        return new Pslg(xs, ys, edgePairs);
+    }
+
+    /**
+     * Checks a triangulation of a PSLG
+     * @param pslg the PSLG
+     * @param triangles its triangles from Triangulator.triangulate
+     * @return what is wrong with them, or null if nothing is
+     */
+    static String check(Pslg pslg, int[] triangles)
+    {
+        int n = pslg.size();
+        if (triangles.length != 3 * (2 * n + 2))
+            return (triangles.length / 3) + " triangles instead of " + (2 * n + 2);
+        int[][] coords = Triangulator.withFrame(pslg.xs, pslg.ys);
+        int[] xs = coords[0], ys = coords[1];
+        int[] frame = Triangulator.frame(pslg.xs, pslg.ys);
+        BigInteger area = BigInteger.ZERO;
+        int turn = 0;
+        HashMap<Long,Integer> sides = new HashMap<>();
+        for (int t = 0; t < triangles.length; t += 3)
+        {
+            int a = triangles[t], b = triangles[t+1], c = triangles[t+2];
+            int orientation = Predicates.orientation(xs[a], ys[a], xs[b], ys[b], xs[c], ys[c]);
+            if (orientation == 0)
+                return "a flat triangle " + a + " " + b + " " + c;
+            if (turn != 0 && orientation != turn)
+                return "triangles turning both ways";
+            turn = orientation;
+            area = area.add(twiceArea(xs[a], ys[a], xs[b], ys[b], xs[c], ys[c]));
+            for (int k = 0; k < 3; k++)
+            {
+                int u = triangles[t + k], v = triangles[t + (k + 1) % 3];
+                if (sides.merge(EdgeRegistry.key(Math.min(u, v), Math.max(u, v)), 1, Integer::sum) > 2)
+                    return "the side " + u + " " + v + " used more than twice";
+            }
+        }
+        BigInteger expected = twiceArea(frame);
+        if (!area.equals(expected))
+            return "the triangles cover " + area + " instead of " + expected;
+        for (int k = 0; k < pslg.edgePairs.length; k += 2)
+        {
+            int u = pslg.edgePairs[k], v = pslg.edgePairs[k + 1];
+            if (!sides.containsKey(EdgeRegistry.key(Math.min(u, v), Math.max(u, v))))
+                return "the edge " + u + " " + v + " is missing";
+        }
+        return null;
+    }
+
+    /**
+     * Edits random LiveTriangulations, printing the seed and step of each edit that leaves one broken
+     * @param seeds the number of edit sequences, made from the seeds 0 to seeds-1
+     * @return the number of broken sequences, each stops at its first broken edit
+     */
+    public static int edits(int seeds)
+    {
+        int failures = 0;
+        for (int seed = 0; seed < seeds; seed++)
+        {
+            Random random = new Random(seed);
+            int range = random.nextBoolean() ? 6 + random.nextInt(20) : 1_000_000_000;
+            int[] frame = {0, 0, range + 1, range + 1};
+            LiveTriangulation live = new LiveTriangulation(frame[0], frame[1], frame[2], frame[3]);
+            ArrayList<Vertex> vertices = new ArrayList<>();
+            ArrayList<Vertex[]> segments = new ArrayList<>();
+            HashSet<Long> used = new HashSet<>();
+            for (int step = 0; step < 200; step++)
+            {
+                String problem;
+                try {
+                    edit(random, range, live, vertices, segments, used);
+                    problem = check(live, vertices, segments, frame);
+                } catch (RuntimeException e) {
+                    problem = e.toString();
+                }
+                if (problem != null)
+                {
+                    failures++;
+                    System.out.println("edits " + seed + " step " + step + ": " + problem);
+                    break;
+                }
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Makes a random edit to a LiveTriangulation and to the vertices and segments it should have
+     */
+    private static void edit(Random random, int range, LiveTriangulation live, ArrayList<Vertex> vertices,
+                             ArrayList<Vertex[]> segments, HashSet<Long> used)
+    {
+        int choice = random.nextInt(10);
+        if (choice < 4 || vertices.size() < 2)
+        {
+            Vertex vertex = new Vertex(1 + random.nextInt(range), 1 + random.nextInt(range));
+            if (!used.add(EdgeRegistry.key(vertex)))
+                return;
+            live.addVertex(vertex);
+            vertices.add(vertex);
+        }
+        else if (choice < 6)
+        {
+            Vertex vertex = vertices.remove(random.nextInt(vertices.size()));
+            used.remove(EdgeRegistry.key(vertex));
+            live.removeVertex(vertex);
+            for (Vertex[] segment : segments)
+            {
+                boolean ends = segment[0] == vertex || segment[1] == vertex;
+                boolean through = Predicates.between(segment[0].getX(), segment[0].getY(),
+                        segment[1].getX(), segment[1].getY(), vertex.getX(), vertex.getY());
+                boolean kept = live.hasEdge(segment[0], segment[1]);
+                if (ends ? kept : !kept && !through)
+                    throw new IllegalStateException("the segment " + segment[0] + " " + segment[1] + " was wrongly kept or dropped");
+            }
+            segments.removeIf(segment -> !live.hasEdge(segment[0], segment[1]));
+        }
+        else if (choice < 9)
+        {
+            Vertex a = vertices.get(random.nextInt(vertices.size())), b = vertices.get(random.nextInt(vertices.size()));
+            if (a == b)
+                return;
+            for (Vertex[] segment : segments)
+            {
+                if ((segment[0] == a && segment[1] == b) || (segment[0] == b && segment[1] == a))
+                    return;
+            }
+            if (live.addEdge(a, b))
+                segments.add(new Vertex[] {a, b});
+        }
+        else if (!segments.isEmpty())
+        {
+            Vertex[] segment = segments.remove(random.nextInt(segments.size()));
+            live.removeEdge(segment[0], segment[1]);
+        }
+    }
+
+    /**
+     * Checks a LiveTriangulation after an edit
+     * @param live the triangulation
+     * @param vertices the vertices it should have
+     * @param segments the segments it should have
+     * @param frame its frame, [minX,minY,maxX,maxY]
+     * @return what is wrong with it, or null if nothing is
+     */
+    static String check(LiveTriangulation live, ArrayList<Vertex> vertices, ArrayList<Vertex[]> segments, int[] frame)
+    {
+        int[] triangles = live.triangles();
+        if (triangles.length != 6 * (2 * vertices.size() + 2))
+            return (triangles.length / 6) + " triangles instead of " + (2 * vertices.size() + 2);
+        BigInteger area = BigInteger.ZERO;
+        for (int t = 0; t < triangles.length; t += 6)
+            area = area.add(twiceArea(triangles[t], triangles[t+1], triangles[t+2], triangles[t+3], triangles[t+4], triangles[t+5]));
+        if (!area.equals(twiceArea(frame)))
+            return "the triangles cover " + area + " instead of " + twiceArea(frame);
+        TreeMap<Long,Integer> points = new TreeMap<>();
+        for (int k = 0; k < triangles.length; k += 2)
+            points.putIfAbsent(EdgeRegistry.key(triangles[k], triangles[k+1]), points.size());
+        HashSet<Long> sides = new HashSet<>(), diagonals = new HashSet<>();
+        for (int t = 0; t < triangles.length; t += 6)
+        {
+            for (int k = 0; k < 6; k += 2)
+                sides.add(side(points, triangles[t+k], triangles[t+k+1], triangles[t+(k+2)%6], triangles[t+(k+3)%6]));
+        }
+        int[] found = live.diagonals();
+        for (int d = 0; d < found.length; d += 4)
+            diagonals.add(side(points, found[d], found[d+1], found[d+2], found[d+3]));
+        for (Vertex[] segment : segments)
+        {
+            int ax = segment[0].getX(), ay = segment[0].getY(), bx = segment[1].getX(), by = segment[1].getY();
+            ArrayList<Integer> along = new ArrayList<>();
+            for (Map.Entry<Long,Integer> point : points.entrySet())
+            {
+                long p = point.getKey();
+                if (Predicates.between(ax, ay, bx, by, (int) (p >> 32), (int) p))
+                    along.add(point.getValue());
+            }
+            for (int k = 0; k + 1 < along.size(); k++)
+            {
+                long piece = EdgeRegistry.key(Math.min(along.get(k), along.get(k+1)), Math.max(along.get(k), along.get(k+1)));
+                if (!sides.contains(piece) || diagonals.contains(piece))
+                    return "the segment " + segment[0] + " " + segment[1] + " is missing";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Packs the side between two points as the smaller of their indices then the larger
+     * @param points the index of each point by its packed coords
+     */
+    private static long side(TreeMap<Long,Integer> points, int ax, int ay, int bx, int by)
+    {
+        int a = points.get(EdgeRegistry.key(ax, ay)), b = points.get(EdgeRegistry.key(bx, by));
+        return EdgeRegistry.key(Math.min(a, b), Math.max(a, b));
+    }
+
+    /**
+     * Runs BatchTriangulator on a good PSLG, one with crossing edges, one with two vertices at the same coords
+     * and a .node file with coords that are not ints, printing what goes wrong
+     * @return the number of failed checks
+     * @throws IOException if the temporary files can not be written
+     * @throws InterruptedException if interrupted while waiting for the batch
+     */
+    public static int batch() throws IOException, InterruptedException
+    {
+        Path input = Files.createTempDirectory("pslgs"), output = Files.createTempDirectory("tris");
+        Pslg good = new Pslg(new int[] {0, 4, 0}, new int[] {0, 0, 4}, new int[] {0, 1, 1, 2});
+        Pslg crossing = new Pslg(new int[] {0, 4, 4, 0}, new int[] {0, 4, 0, 4}, new int[] {0, 1, 2, 3});
+        Pslg duplicate = new Pslg(new int[] {0, 4, 0}, new int[] {0, 4, 0}, new int[] {0, 1});
+        PslgFiles.writeBinary(good, input.resolve("good.pslg"));
+        PslgFiles.writeBinary(crossing, input.resolve("crossing.pslg"));
+        PslgFiles.writeBinary(duplicate, input.resolve("duplicate.pslg"));
+        Files.write(input.resolve("fractional.node"), Arrays.asList("3 2 0 0", "1 0.1 0", "2 0.3 0", "3 0 4"));
+        int failed = new BatchTriangulator(2, false).run(BatchTriangulator.inputs(input), output);
+        int failures = 0;
+        if (failed != 3)
+        {
+            failures++;
+            System.out.println("batch: " + failed + " files failed instead of 3");
+        }
+        for (String name : new String[] {"crossing.pslg", "duplicate.pslg", "fractional.node"})
+        {
+            if (Files.exists(output.resolve(name + ".tris")))
+            {
+                failures++;
+                System.out.println("batch: a triangle file was left for " + name);
+            }
+        }
+        Path tris = output.resolve("good.pslg.tris");
+        String problem = Files.exists(tris) ? check(good, PslgFiles.readTriangles(tris)) : "no triangle file";
+        if (problem != null)
+        {
+            failures++;
+            System.out.println("batch: good.pslg: " + problem);
+        }
+        for (Path directory : new Path[] {input, output})
+        {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory))
+            {
+                for (Path file : files)
+                    Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+        return failures;
+    }
+
+    /**
+     * Finds twice the area of a triangle exactly, for any int coords
+     */
+    private static BigInteger twiceArea(int ax, int ay, int bx, int by, int cx, int cy)
+    {
+        BigInteger ab = BigInteger.valueOf((long) bx - ax).multiply(BigInteger.valueOf((long) cy - ay));
+        BigInteger ac = BigInteger.valueOf((long) by - ay).multiply(BigInteger.valueOf((long) cx - ax));
+        return ab.subtract(ac).abs();
+    }
+
+    /**
+     * Finds twice the area of a frame, [minX,minY,maxX,maxY], exactly
+     */
+    private static BigInteger twiceArea(int[] frame)
+    {
+        return BigInteger.valueOf((long) frame[2] - frame[0]).multiply(BigInteger.valueOf((long) frame[3] - frame[1])).shiftLeft(1);
+    }
+}
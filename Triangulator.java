@@ -0,0 +1,929 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the trapezoidalization sweep and the triangulation of a PSLG, independent of the GUI
+ */
+public class Triangulator {
+    /**
+     * HELPER joins each event to the helpers of the gaps above it, BRUTE_FORCE tests every earlier
+     * vertex for visibility and is kept to cross-check the helpers against
+     */
+    enum DiagonalMode {HELPER, BRUTE_FORCE}
+    DiagonalMode diagonalMode = DiagonalMode.HELPER;
+    /**
+     * Whether the sweep runs in slabs and the mountains are triangulated concurrently, the mountains share no
+     * state while their triangles are found
+     */
+    boolean parallel;
+    /**
+     * Whether triangulate() flips its triangles to the constrained Delaunay triangulation afterwards
+     */
+    boolean delaunay;
+    /**
+     * How many mountains the headless triangulation collects before triangulating them concurrently
+     */
+    static final int MOUNTAIN_BATCH = 1024;
+    ArrayList<Vertex> vertices;
+    ArrayList<Edge> edges;
+    /**
+     * The number of edges of the PSLG when the sweep was set up, the edges after them were added by the sweep
+     */
+    int pslgEdgeCount;
+    /**
+     * Maps each edge to its index in edges, so an edge can be found, added or removed in O(1)
+     */
+    EdgeRegistry registry;
+    /**
+     * The topology of the current sweep, edge k of the mesh is edges.get(k) and mesh vertex i is meshVertices[i]
+     */
+    HalfEdgeMesh mesh;
+    Vertex[] meshVertices;
+    int[] frame;
+    Vertex[] corners;
+    SweepLineStatus sweepLineStatus;
+    /**
+     * The trapezoidalization lines of the events swept so far, only kept when they are drawn or used, that is
+     * when trace is set or diagonalMode is BRUTE_FORCE, and empty otherwise
+     */
+    ArrayList<Edge> trapezoidalization;
+    /**
+     * The monotone mountains once the sweep is done
+     */
+    ArrayList<SimplePolygon> faces;
+    /**
+     * The triangles of the mountains once triangulate() is done, flipped if delaunay is set, null before
+     */
+    TriangleMesh triangulation;
+    /**
+     * The triangles of the mountains as mesh vertex indices before any flips, kept so delaunay can be switched
+     * once triangulate() is done, null before
+     */
+    private int[] mountainTriangles;
+    int sweepEvent;
+    /**
+     * Records the latest events of the sweep for AlgebraPanel, null to not trace the sweep at all
+     */
+    SweepTrace trace;
+
+    public Triangulator()
+    {
+        vertices = new ArrayList<>();
+        edges = new ArrayList<>();
+        registry = new EdgeRegistry();
+        faces = new ArrayList<>();
+        trace = new SweepTrace();
+    }
+
+    /**
+     * Triangulates a PSLG without the GUI, the frame around it is found from its coordinates
+     * @param xs the x-coords of the vertices, no two vertices may have the same coords
+     * @param ys the y-coords of the vertices
+     * @param edgePairs the edges as consecutive pairs of vertex indices
+     * @return the triangles as consecutive triples of vertex indices, the indices xs.length to xs.length+3
+     * are the top left, top right, bottom left and bottom right corners of frame(xs, ys)
+     */
+    public static int[] triangulate(int[] xs, int[] ys, int[] edgePairs)
+    {
+        return triangulate(xs, ys, edgePairs, false);
+    }
+
+    /**
+     * Triangulates a PSLG without the GUI, like triangulate(xs, ys, edgePairs)
+     * @param xs the x-coords of the vertices, no two vertices may have the same coords
+     * @param ys the y-coords of the vertices
+     * @param edgePairs the edges as consecutive pairs of vertex indices
+     * @param parallel whether to sweep in slabs and triangulate the mountains concurrently, the result is the
+     * same either way
+     * @return the triangles as consecutive triples of vertex indices
+     */
+    public static int[] triangulate(int[] xs, int[] ys, int[] edgePairs, boolean parallel)
+    {
+        TriangleArray triangles = new TriangleArray(2 * xs.length + 2);
+        triangulate(xs, ys, edgePairs, parallel, triangles);
+        return Arrays.copyOf(triangles.indices, triangles.size);
+    }
+
+    /**
+     * Triangulates a PSLG without the GUI into an indexed mesh, like triangulate(xs, ys, edgePairs, parallel)
+     * @param xs the x-coords of the vertices, no two vertices may have the same coords
+     * @param ys the y-coords of the vertices
+     * @param edgePairs the edges as consecutive pairs of vertex indices
+     * @param parallel whether to sweep in slabs and triangulate the mountains concurrently
+     * @return the mesh, its vertices xs.length to xs.length+3 being the corners of frame(xs, ys)
+     */
+    public static TriangleMesh triangulateMesh(int[] xs, int[] ys, int[] edgePairs, boolean parallel)
+    {
+        return TriangleMesh.framed(xs, ys, triangulate(xs, ys, edgePairs, parallel));
+    }
+
+    /**
+     * Triangulates a PSLG without the GUI, passing the triangles of each mountain to a sink as soon as they are
+     * found instead of keeping them, so the memory needed is bounded by the sweep rather than the output.
+     * The triangles come in the same order as from triangulate(xs, ys, edgePairs).
+     * @param xs the x-coords of the vertices, no two vertices may have the same coords
+     * @param ys the y-coords of the vertices
+     * @param edgePairs the edges as consecutive pairs of vertex indices
+     * @param parallel whether to sweep in slabs and triangulate batches of mountains concurrently, the sink is
+     * still called from this thread only
+     * @param sink takes the triangles as indices into xs, or xs.length to xs.length+3 for the corners
+     */
+    public static void triangulate(int[] xs, int[] ys, int[] edgePairs, boolean parallel, TriangleSink sink)
+    {
+        if (xs.length == 0)
+            return;
+        Triangulator triangulator = new Triangulator();
+        triangulator.parallel = parallel;
+        triangulator.trace = null;
+        Vertex[] vertices = triangulator.load(xs, ys, edgePairs);
+        triangulator.sweep();
+        int[] indices = new int[xs.length + 4];
+        for (int i = 0; i < xs.length; i++)
+            indices[vertices[i].getIndex()] = i;
+        for (int j = 0; j < 4; j++)
+            indices[triangulator.corners[j].getIndex()] = xs.length + j;
+        int batchSize = parallel ? MOUNTAIN_BATCH : 1;
+        ArrayList<int[]> batch = new ArrayList<>();
+        triangulator.forEachMountain(face -> {
+            batch.add(face);
+            if (batch.size() == batchSize)
+            {
+                triangulator.emit(batch, indices, sink);
+                batch.clear();
+            }
+        });
+        triangulator.emit(batch, indices, sink);
+    }
+
+    /**
+     * Triangulates some mountains and passes their triangles to a sink in the order of the list
+     * @param mountains the mountains as mesh vertex indices
+     * @param indices the index to give each mesh vertex
+     * @param sink the sink
+     */
+    private void emit(List<int[]> mountains, int[] indices, TriangleSink sink)
+    {
+        for (int[] found : triangulateFaces(mountains))
+        {
+            for (int k = 0; k < found.length; k += 3)
+                sink.accept(indices[found[k]], indices[found[k+1]], indices[found[k+2]]);
+        }
+    }
+
+    /**
+     * Adds a PSLG given in primitive arrays, an edge given twice is only added once
+     * @param xs the x-coords of the vertices
+     * @param ys the y-coords of the vertices
+     * @param edgePairs the edges as consecutive pairs of vertex indices
+     * @return the new vertices, in the order of the coordinate arrays
+     */
+    Vertex[] load(int[] xs, int[] ys, int[] edgePairs)
+    {
+        Vertex[] loaded = new Vertex[xs.length];
+        for (int i = 0; i < xs.length; i++)
+        {
+            loaded[i] = new Vertex(xs[i], ys[i]);
+            vertices.add(loaded[i]);
+        }
+        for (int i = 0; i + 1 < edgePairs.length; i += 2)
+        {
+            if (findEdge(loaded[edgePairs[i]], loaded[edgePairs[i+1]]) == EdgeRegistry.MISSING)
+                insertEdge(new Edge(loaded[edgePairs[i]], loaded[edgePairs[i+1]]));
+        }
+        return loaded;
+    }
+
+    /**
+     * Finds the edge between two vertices in O(1)
+     * @param a a vertex
+     * @param b the other vertex
+     * @return the index of the edge in edges, or EdgeRegistry.MISSING if they are not joined
+     */
+    public int findEdge(Vertex a, Vertex b)
+    {
+        return registry.get(a, b);
+    }
+
+    /**
+     * Adds an edge to the PSLG, it goes into the mesh when the next sweep is set up
+     * @param edge the edge, which must not be in the PSLG yet
+     */
+    public void insertEdge(Edge edge)
+    {
+        registry.put(edge.getStart(), edge.getEnd(), edges.size());
+        edges.add(edge);
+    }
+
+    /**
+     * Removes an edge from the PSLG in O(1) by moving the last edge into its place
+     * @param index the index of the edge in edges
+     */
+    public void removeEdge(int index)
+    {
+        Edge removed = edges.get(index);
+        Edge last = edges.remove(edges.size()-1);
+        registry.remove(removed.getStart(), removed.getEnd());
+        if (index < edges.size())
+        {
+            edges.set(index, last);
+            registry.put(last.getStart(), last.getEnd(), index);
+        }
+    }
+
+    /**
+     * Removes a vertex and the edges to it from the PSLG
+     * @param vertex the vertex
+     */
+    public void removeVertex(Vertex vertex)
+    {
+        vertices.remove(vertex);
+        for (int i = edges.size()-1; i >= 0; i--)
+        {
+            if (edges.get(i).contains(vertex))
+                removeEdge(i);
+        }
+    }
+
+    /**
+     * Removes the PSLG
+     */
+    public void clear()
+    {
+        vertices = new ArrayList<>();
+        edges = new ArrayList<>();
+        registry.clear();
+        faces = new ArrayList<>();
+        triangulation = null;
+        mountainTriangles = null;
+        sweepLineStatus = null;
+    }
+
+    /**
+     * Sets the frame around the PSLG used by the next sweep, otherwise it is found from the coordinates
+     * @param minX the x-coord of the left side
+     * @param minY the y-coord of the top side
+     * @param maxX the x-coord of the right side
+     * @param maxY the y-coord of the bottom side
+     */
+    public void setFrame(int minX, int minY, int maxX, int maxY)
+    {
+        frame = new int[] {minX, minY, maxX, maxY};
+    }
+
+    /**
+     * Finds a frame strictly around the given coordinates
+     * @param xs the x-coords of the vertices
+     * @param ys the y-coords of the vertices
+     * @return the integer array [minX,minY,maxX,maxY]
+     */
+    public static int[] frame(int[] xs, int[] ys)
+    {
+        long minX = Long.MAX_VALUE, minY = Long.MAX_VALUE, maxX = Long.MIN_VALUE, maxY = Long.MIN_VALUE;
+        for (int i = 0; i < xs.length; i++)
+        {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        if (xs.length == 0)
+            minX = minY = maxX = maxY = 0;
+        long margin = Math.max(1, Math.max(maxX - minX, maxY - minY) / 20);
+        return new int[] {clamp(minX - margin), clamp(minY - margin), clamp(maxX + margin), clamp(maxY + margin)};
+    }
+
+    /**
+     * Adds the corners of frame(xs, ys) to the coords, as the vertices the triangles of triangulate(xs, ys,
+     * edgePairs) give them
+     * @param xs the x-coords of the vertices
+     * @param ys the y-coords of the vertices
+     * @return the coords with the top left, top right, bottom left and bottom right corners after them, as
+     * {xs, ys}
+     */
+    static int[][] withFrame(int[] xs, int[] ys)
+    {
+        int n = xs.length;
+        int[] frame = frame(xs, ys);
+        int[] allXs = Arrays.copyOf(xs, n + 4), allYs = Arrays.copyOf(ys, n + 4);
+        allXs[n] = allXs[n+2] = frame[0];
+        allXs[n+1] = allXs[n+3] = frame[2];
+        allYs[n] = allYs[n+1] = frame[1];
+        allYs[n+2] = allYs[n+3] = frame[3];
+        return new int[][] {allXs, allYs};
+    }
+
+    private static int clamp(long value)
+    {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+    }
+
+    /**
+     * Sets up the points for the Sweep Algorithm to be applied to them, putting the vertices in EventQueue order
+     */
+    public void setUpSweep()
+    {
+        sweepLineStatus = new SweepLineStatus();
+        int[] xs = new int[vertices.size()];
+        int[] ys = new int[vertices.size()];
+        for (int i = 0; i < xs.length; i++)
+        {
+            xs[i] = vertices.get(i).getX();
+            ys[i] = vertices.get(i).getY();
+        }
+        int[] bounds = (frame == null) ? frame(xs, ys) : frame;
+        corners = new Vertex[] {
+                new Vertex(bounds[0],bounds[1]),
+                new Vertex(bounds[2],bounds[1]),
+                new Vertex(bounds[0],bounds[3]),
+                new Vertex(bounds[2],bounds[3])
+        };
+        Vertex[] sorted = new Vertex[vertices.size()];
+        int[] order = EventQueue.order(xs, ys);
+        for (int i = 0; i < order.length; i++)
+            sorted[i] = vertices.get(order[i]);
+        for (int i = 0; i < sorted.length; i++)
+            vertices.set(i, sorted[i]);
+        mesh = new HalfEdgeMesh(vertices.size()+4, 3*(vertices.size()+4));
+        meshVertices = new Vertex[vertices.size()+4];
+        for (Vertex vertex : vertices)
+            addVertex(vertex);
+        for (Vertex corner : corners)
+            addVertex(corner);
+        int[] ends = new int[2 * edges.size()];
+        for (int i = 0; i < edges.size(); i++)
+        {
+            ends[2*i] = edges.get(i).getStart().getIndex();
+            ends[2*i+1] = edges.get(i).getEnd().getIndex();
+        }
+        int first = mesh.addEdges(ends);
+        for (int i = 0; i < edges.size(); i++)
+            edges.get(i).setHalfEdge(first + 2*i);
+        pslgEdgeCount = edges.size();
+        trapezoidalization = new ArrayList<>();
+        if (trace != null)
+            trace.clear();
+        sweepEvent = 0;
+        faces = new ArrayList<>();
+        triangulation = null;
+        mountainTriangles = null;
+    }
+
+    private void addVertex(Vertex vertex)
+    {
+        vertex.setIndex(mesh.addVertex(vertex.getX(), vertex.getY()));
+        meshVertices[vertex.getIndex()] = vertex;
+    }
+
+    /**
+     * Adds an edge to the PSLG and to the mesh
+     * @param edge the edge, its vertices must be in the mesh
+     */
+    private void addEdge(Edge edge)
+    {
+        addEdge(edge, -1, -1);
+    }
+
+    /**
+     * Adds an edge to the PSLG and to the mesh, linking it around its ends from half-edges before it
+     * @param edge the edge, its vertices must be in the mesh
+     * @param fromStart a half-edge leaving the start of the edge before it counterclockwise, or -1
+     * @param fromEnd a half-edge leaving the end of the edge before it counterclockwise, or -1
+     */
+    private void addEdge(Edge edge, int fromStart, int fromEnd)
+    {
+        edge.setHalfEdge(mesh.addEdge(edge.getStart().getIndex(), edge.getEnd().getIndex(), fromStart, fromEnd));
+        insertEdge(edge);
+    }
+
+    /**
+     * Runs the whole sweep, in slabs on the fork-join pool if parallel is set and there are enough events and
+     * cores for it, the edges added being the same and in the same order either way. Slabs record no trace,
+     * so they are only used when trace is null.
+     */
+    public void sweep()
+    {
+        setUpSweep();
+        int slabs = Math.min(SlabSweep.SLABS_PER_CORE * SlabSweep.parallelism(), vertices.size() / SlabSweep.SLAB_MINIMUM);
+        if (parallel && trace == null && diagonalMode == DiagonalMode.HELPER && SlabSweep.parallelism() > 1 && slabs > 1)
+            SlabSweep.sweep(this, slabs);
+        else
+            while (sweepEvent < vertices.size())
+                sweepNext();
+    }
+
+    /**
+     * Process the next event in the Sweep Algorithm
+     */
+    public void sweepNext()
+    {
+        long start = System.nanoTime();
+        if (sweepLineStatus == null||sweepEvent>=vertices.size())
+            setUpSweep();
+        Vertex event = vertices.get(sweepEvent++);
+        Metrics.count(Metrics.Counter.EVENTS);
+        sweepLineStatus.setSweepY(event.getY());
+        int[] line = trapezoidLine(sweepLineStatus, event);
+        ArrayList<SweepLineStatus.Gap> helpers = sweepLineStatus.helpers(event);
+        advance(sweepLineStatus, event);
+        Metrics.statusSize(sweepLineStatus.size());
+        finishEvent(event, helpers, line[0], line[1]);
+        if (trace != null)
+            trace.record(sweepEvent, line[2], line[3], sweepLineStatus.getEdges(), sweepLineStatus.size());
+        Metrics.time(Main.PhaseType.SWEEP, start);
+    }
+
+    /**
+     * Finds the trapezoidalization line of an event, from where rays left and right of it first hit an edge
+     * @param status the status with the sweep line at the event
+     * @param event the event
+     * @return the integer array [lx,rx,lIndex,rIndex] of the ends of the line and the edges they are on,
+     * SweepTrace.FRAME for an end on the frame
+     */
+    int[] trapezoidLine(SweepLineStatus status, Vertex event)
+    {
+        int rIndex = SweepTrace.FRAME;
+        int lIndex = SweepTrace.FRAME;
+        int lx = corners[0].getX();
+        int rx = corners[1].getX();
+        int lcandidate = Predicates.MISS;
+        Edge left = status.lower(event);
+        while (left != null && (lcandidate = rayHit(event, -1, left)) == Predicates.MISS)
+            left = status.lower(left);
+        if (lcandidate != Predicates.MISS && lcandidate > lx)
+        {
+            lx = lcandidate;
+            lIndex = left.getHalfEdge()/2;
+        }
+        int rcandidate = Predicates.MISS;
+        Edge right = status.higher(event);
+        while (right != null && (rcandidate = rayHit(event, 1, right)) == Predicates.MISS)
+            right = status.higher(right);
+        if (rcandidate != Predicates.MISS && rcandidate < rx)
+        {
+            rx = rcandidate;
+            rIndex = right.getHalfEdge()/2;
+        }
+        return new int[] {lx, rx, lIndex, rIndex};
+    }
+
+    /**
+     * Moves the edges of an event into or out of the status and makes the event the helper of the gaps it
+     * spans. Every edge ending at the event is removed before any edge starting there is added, so the status
+     * never holds both at once. Only the mesh is read, so slabs of the sweep can do this concurrently.
+     * @param status the status with the sweep line at the event
+     * @param event the event
+     */
+    void advance(SweepLineStatus status, Vertex event)
+    {
+        int first = mesh.outgoing(event.getIndex());
+        if (first == -1)
+        {
+            status.setHelper(event);
+            return;
+        }
+        int h = first;
+        do {
+            if (mesh.getY(mesh.destination(h))<event.getY())
+                status.remove(edges.get(h/2));
+            h = mesh.rotate(h);
+        } while (h != first);
+        do {
+            if (mesh.getY(mesh.destination(h))>=event.getY())
+                status.add(edges.get(h/2));
+            h = mesh.rotate(h);
+        } while (h != first);
+        status.setHelper(event);
+    }
+
+    /**
+     * Adds the diagonals of an event and its trapezoidalization line, and the frame at the first and last events.
+     * The line is only kept when it is drawn or used, so the headless sweep allocates no Edge for it.
+     * @param event the event, sweepEvent must already count it
+     * @param helpers the gaps above the event with distinct helpers
+     * @param lx the x-coord of the left end of its trapezoidalization line
+     * @param rx the x-coord of the right end
+     */
+    void finishEvent(Vertex event, ArrayList<SweepLineStatus.Gap> helpers, int lx, int rx)
+    {
+        if (sweepEvent==vertices.size())
+        {
+            addEdge(new Edge(corners[2],event));
+            addEdge(new Edge(corners[3],event));
+            addEdge(new Edge(corners[0],corners[1]));
+            addEdge(new Edge(corners[1],corners[3]));
+            addEdge(new Edge(corners[2],corners[0]));
+            addEdge(new Edge(corners[3],corners[2]));
+        }
+        if (sweepEvent==1)
+        {
+            addEdge(new Edge(corners[0],event));
+            addEdge(new Edge(corners[1],event));
+        }
+        if (diagonalMode == DiagonalMode.HELPER)
+            addHelperDiagonals(event, helpers);
+        else
+            addVisibleDiagonals(event);
+        if (trace != null || diagonalMode == DiagonalMode.BRUTE_FORCE)
+            trapezoidalization.add(new Edge(new Vertex(lx,event.getY()),new Vertex(rx,event.getY())));
+    }
+
+    /**
+     * Finds where a horizontal ray from an event hits an edge
+     * @param event the event the ray starts next to
+     * @param direction -1 for the ray going left, 1 for the ray going right
+     * @param edge the edge
+     * @return the x-coord of the hit, or Predicates.MISS
+     */
+    private static int rayHit(Vertex event, int direction, Edge edge)
+    {
+        Metrics.count(Metrics.Counter.RAY_HITS);
+        Vertex start = edge.getStart();
+        Vertex end = edge.getEnd();
+        return Predicates.rayHit(event.getX(), event.getY(), direction, start.getX(), start.getY(), end.getX(), end.getY());
+    }
+
+    /**
+     * Joins an event to the helpers of the gaps above it which it is not already joined to. Each diagonal is
+     * linked into the mesh next to the sides of its gap, so adding it takes O(1) whatever the degree of its ends.
+     * @param event the event being processed
+     * @param helpers the gaps just above the event with distinct helpers
+     */
+    private void addHelperDiagonals(Vertex event, ArrayList<SweepLineStatus.Gap> helpers)
+    {
+        helpers.sort(Comparator.comparingInt(gap -> gap.helper.getY()));
+        for (SweepLineStatus.Gap gap : helpers)
+        {
+            if (findEdge(event, gap.helper) == EdgeRegistry.MISSING)
+            {
+                addEdge(new Edge(event,gap.helper), fromBelow(event, gap), fromAbove(gap.helper, gap));
+                Metrics.count(Metrics.Counter.DIAGONALS);
+            }
+        }
+    }
+
+    /**
+     * Finds where to link a diagonal going up from an event through a gap. The edges ending at the event go
+     * counterclockwise from left to right, so the diagonal comes just after the left side of its gap if that
+     * ends at the event and just before the right side if that does. If neither does the event has no edges
+     * going up, and the diagonal comes after the last of its edges.
+     * @param event the event
+     * @param gap the gap above it
+     * @return the half-edge leaving the event to link the diagonal after, or -1 for the last one
+     */
+    private int fromBelow(Vertex event, SweepLineStatus.Gap gap)
+    {
+        if (gap.left != null && bottom(gap.left) == event)
+            return leaving(gap.left, event);
+        if (gap.right != null && bottom(gap.right) == event)
+            return mesh.next(leaving(gap.right, event) ^ 1);
+        return -1;
+    }
+
+    /**
+     * Finds where to link a diagonal going down from a helper through the gap it helps. The edges starting at
+     * the helper go counterclockwise from right to left, so the diagonal comes just before the left side of
+     * its gap if that starts at the helper and just after the right side if that does. If neither does the
+     * helper has no edges going down, and the diagonal comes after the last of its edges or the horizontal
+     * edge going right from it.
+     * @param helper the helper
+     * @param gap the gap below it
+     * @return the half-edge leaving the helper to link the diagonal after, or -1 for the last one
+     */
+    private int fromAbove(Vertex helper, SweepLineStatus.Gap gap)
+    {
+        if (gap.left != null && top(gap.left) == helper)
+            return mesh.next(leaving(gap.left, helper) ^ 1);
+        if (gap.right != null && top(gap.right) == helper)
+            return leaving(gap.right, helper);
+        return -1;
+    }
+
+    /**
+     * Gets the half-edge of an edge that leaves one of its ends
+     */
+    private static int leaving(Edge edge, Vertex end)
+    {
+        return (edge.getStart() == end) ? edge.getHalfEdge() : edge.getHalfEdge() ^ 1;
+    }
+
+    private static Vertex top(Edge edge)
+    {
+        return (edge.getStart().getY() <= edge.getEnd().getY()) ? edge.getStart() : edge.getEnd();
+    }
+
+    private static Vertex bottom(Edge edge)
+    {
+        return (edge.getStart().getY() <= edge.getEnd().getY()) ? edge.getEnd() : edge.getStart();
+    }
+
+    /**
+     * Joins an event to every earlier vertex it can see without crossing a trapezoidalization line or an edge
+     * @param event the event being processed
+     */
+    private void addVisibleDiagonals(Vertex event)
+    {
+        for (int i = 0; i < sweepEvent-1; i++)
+        {
+            Vertex edgeUp = vertices.get(i);
+            boolean clear = true;
+            for (Edge edge: trapezoidalization)
+            {
+                if (edge.getEnd().getY() <= edgeUp.getY())
+                    continue;
+                if (intersects(event,edgeUp,edge))
+                {
+                    clear = false;
+                    break;
+                }
+            }
+            if (!clear || findEdge(event, edgeUp) != EdgeRegistry.MISSING)
+                continue;
+            Edge newEdge = new Edge(event,edgeUp);
+            for (Edge edge: edges)
+            {
+                if (!edge.contains(event)&&!edge.contains(edgeUp)&&intersects(edgeUp,event,edge))
+                {
+                    clear = false;
+                    break;
+                }
+            }
+            if (clear)
+            {
+                addEdge(newEdge);
+                Metrics.count(Metrics.Counter.DIAGONALS);
+            }
+        }
+    }
+
+    /**
+     * Determines if the segment between two vertices intersects an edge
+     * @param a an endpoint of the segment
+     * @param b the other endpoint of the segment
+     * @param edge the edge
+     * @return true if they intersect, false otherwise
+     */
+    private static boolean intersects(Vertex a, Vertex b, Edge edge)
+    {
+        Vertex c = edge.getStart();
+        Vertex d = edge.getEnd();
+        return Predicates.intersectsProp(a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY(), d.getX(), d.getY());
+    }
+
+    /**
+     * Constructs a monotone mountain by walking around the face to the left of a half-edge
+     * @param start a half-edge of the mesh
+     * @param visited the half-edges already walked along, the ones walked now are marked
+     * @return the mesh vertices of the face in order
+     */
+    public int[] constructPolygon(int start, boolean[] visited)
+    {
+        int size = 0;
+        int h = start;
+        do {
+            visited[h] = true;
+            size++;
+            h = mesh.next(h);
+        } while (h != start);
+        int[] face = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            face[i] = mesh.origin(h);
+            h = mesh.next(h);
+        }
+        return face;
+    }
+
+    /**
+     * Finds which way a face of the mesh turns, exactly, from the turn at its lowest vertex. The neighbours of
+     * that vertex are both above it or right of it, so the turn there is never flat and has the sign of the
+     * face's area.
+     * @param face the mesh vertices of the face in order
+     * @return 1 if the vertices go counterclockwise, -1 if they go clockwise
+     */
+    private int orientation(int[] face)
+    {
+        int n = face.length, lowest = 0;
+        for (int i = 1; i < n; i++)
+        {
+            int y = mesh.getY(face[i]), low = mesh.getY(face[lowest]);
+            if (y < low || (y == low && mesh.getX(face[i]) < mesh.getX(face[lowest])))
+                lowest = i;
+        }
+        int a = face[(lowest+n-1)%n], b = face[lowest], c = face[(lowest+1)%n];
+        return Predicates.orientation(mesh.getX(a), mesh.getY(a), mesh.getX(b), mesh.getY(b), mesh.getX(c), mesh.getY(c));
+    }
+
+    /**
+     * Resets the PSLG to what the user inputted
+     */
+    public void reset()
+    {
+        ArrayList<Edge> leftover = new ArrayList<>();
+        int index = 0;
+        for (;index<edges.size();index++)
+        {
+            if (edges.get(index).contains(corners[0]))
+                break;
+            leftover.add(edges.get(index));
+        }
+        for (int i = index; i < edges.size(); i++)
+            registry.remove(edges.get(i).getStart(), edges.get(i).getEnd());
+        edges = leftover;
+        if (mesh != null)
+            mesh.truncate(edges.size());
+        faces = new ArrayList<>();
+        triangulation = null;
+        mountainTriangles = null;
+        for (int j = 0; j < 4; j++) {
+            vertices.remove(corners[j]);
+        }
+    }
+
+    /**
+     * Identifies and triangulates the monotone mountains in the PSLG into triangulation, flipping the
+     * triangles to constrained Delaunay if delaunay is set. The faces keep the mountains either way.
+     */
+    public void triangulate()
+    {
+        constructMountains();
+        int[][] found = triangulateMountains(faces);
+        int size = 0;
+        for (int[] triangles : found)
+            size += triangles.length;
+        int[] triangles = new int[size];
+        size = 0;
+        for (int i = 0; i < found.length; i++)
+        {
+            ArrayList<Vertex> face = faces.get(i).vertices;
+            for (int index : found[i])
+                triangles[size++] = face.get(index).getIndex();
+        }
+        mountainTriangles = triangles;
+        buildTriangulation();
+    }
+
+    /**
+     * Switches the constrained Delaunay flips on or off, rebuilding the triangulation if triangulate() is done
+     * @param delaunay whether to flip the triangles
+     */
+    public void setDelaunay(boolean delaunay)
+    {
+        this.delaunay = delaunay;
+        if (mountainTriangles != null)
+            buildTriangulation();
+    }
+
+    /**
+     * Builds triangulation from the triangles of the mountains, flipped if delaunay is set
+     */
+    private void buildTriangulation()
+    {
+        int[] xs = new int[mesh.vertexCount()], ys = new int[mesh.vertexCount()];
+        for (int i = 0; i < xs.length; i++)
+        {
+            xs[i] = mesh.getX(i);
+            ys[i] = mesh.getY(i);
+        }
+        int[] triangles = mountainTriangles.clone();
+        if (delaunay)
+            flipToDelaunay(xs, ys, triangles);
+        triangulation = new TriangleMesh(xs, ys, triangles);
+    }
+
+    /**
+     * Flips the triangles of the mountains to the constrained Delaunay triangulation of the PSLG. The faces
+     * still hold the mountains, whose diagonals may have been flipped away, so they are not drawn while flipped.
+     * @param xs the x-coords of the mesh vertices
+     * @param ys the y-coords of the mesh vertices
+     * @param triangles the triangles as triples of mesh vertex indices, flipped in place
+     */
+    private void flipToDelaunay(int[] xs, int[] ys, int[] triangles)
+    {
+        long start = System.nanoTime();
+        int[] constraints = new int[2 * pslgEdgeCount];
+        for (int k = 0; k < pslgEdgeCount; k++)
+        {
+            constraints[2 * k] = edges.get(k).getStart().getIndex();
+            constraints[2 * k + 1] = edges.get(k).getEnd().getIndex();
+        }
+        DelaunayFlips.flipTriangles(xs, ys, triangles, constraints);
+        Metrics.time(Main.PhaseType.FINAL, start);
+    }
+
+    /**
+     * Triangulates each of a list of mountains, concurrently if parallel is set. Only the indices are found
+     * concurrently, building SimplePolygons changes the next and prev links of the vertices.
+     * @param mountains the mountains
+     * @return the triangles of each mountain as indices into its vertex list, in the order of the list
+     */
+    int[][] triangulateMountains(List<SimplePolygon> mountains)
+    {
+        long start = System.nanoTime();
+        int[][] triangles = new int[mountains.size()][];
+        IntStream range = IntStream.range(0, mountains.size());
+        if (parallel)
+            range = range.parallel();
+        range.forEach(i -> {
+            triangles[i] = mountains.get(i).triangulateIndices();
+            Metrics.count(Metrics.Counter.TRIANGLES, triangles[i].length / 3);
+        });
+        Metrics.time(Main.PhaseType.FINAL, start);
+        return triangles;
+    }
+
+    /**
+     * Triangulates each of a list of mountains given as mesh vertices, concurrently if parallel is set, reading
+     * the coords from the mesh without building SimplePolygons
+     * @param mountains the mountains as mesh vertex indices
+     * @return the triangles of each mountain as mesh vertex indices, in the order of the list
+     */
+    int[][] triangulateFaces(List<int[]> mountains)
+    {
+        long start = System.nanoTime();
+        int[][] triangles = new int[mountains.size()][];
+        IntStream range = IntStream.range(0, mountains.size());
+        if (parallel)
+            range = range.parallel();
+        range.forEach(i -> {
+            int[] face = mountains.get(i);
+            int[] xs = new int[face.length], ys = new int[face.length];
+            for (int k = 0; k < face.length; k++)
+            {
+                xs[k] = mesh.getX(face[k]);
+                ys[k] = mesh.getY(face[k]);
+            }
+            int[] found = SimplePolygon.triangulateIndices(xs, ys);
+            for (int k = 0; k < found.length; k++)
+                found[k] = face[found[k]];
+            triangles[i] = found;
+            Metrics.count(Metrics.Counter.TRIANGLES, found.length / 3);
+        });
+        Metrics.time(Main.PhaseType.FINAL, start);
+        return triangles;
+    }
+
+    /**
+     * Identifies the monotone mountains in the PSLG once the sweep is done, adding them to the faces
+     */
+    public void constructMountains()
+    {
+        long start = System.nanoTime();
+        vertices.add(corners[0]);
+        vertices.add(corners[1]);
+        vertices.add(corners[2]);
+        vertices.add(corners[3]);
+        forEachMountain(face -> {
+            ArrayList<Vertex> polygon = new ArrayList<>(face.length);
+            for (int v : face)
+                polygon.add(meshVertices[v]);
+            faces.add(new SimplePolygon(polygon));
+        });
+        Metrics.time(Main.PhaseType.TRIANGULATE, start);
+    }
+
+    /**
+     * Walks every face of the mesh once the sweep is done, passing on the bounded ones, which are the mountains
+     * @param action takes the mesh vertices of each mountain counterclockwise
+     */
+    private void forEachMountain(Consumer<int[]> action)
+    {
+        boolean[] visited = new boolean[mesh.halfEdgeCount()];
+        for (int h = 0; h < visited.length; h++)
+        {
+            if (visited[h])
+                continue;
+            int[] face = constructPolygon(h, visited);
+            if (face.length < 3 || orientation(face) <= 0)
+                continue;
+            Metrics.count(Metrics.Counter.MOUNTAINS);
+            action.accept(face);
+        }
+    }
+
+    /**
+     * Keeps the triangles passed to it in a growing array
+     */
+    private static class TriangleArray implements TriangleSink {
+        int[] indices;
+        int size;
+
+        TriangleArray(int expected)
+        {
+            indices = new int[3 * Math.max(1, expected)];
+        }
+
+        @Override
+        public void accept(int a, int b, int c)
+        {
+            if (size + 3 > indices.length)
+                indices = Arrays.copyOf(indices, 2 * indices.length);
+            indices[size++] = a;
+            indices[size++] = b;
+            indices[size++] = c;
+        }
+    }
+}
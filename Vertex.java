@@ -1,12 +1,10 @@
 import java.awt.*;
-import java.util.ArrayList;
 import java.util.Objects;
 
 public class Vertex {
     private final int x,y;
     private Vertex next,prev;
-    private final ArrayList<Edge> edges;
-    private Color color;
+    private int index = -1;
 
     /**
      * Constructs a vertex
@@ -17,8 +15,6 @@ public class Vertex {
     {
         this.x = x;
         this.y = y;
-        color = new Color(200,100,100);
-        edges = new ArrayList<>();
     }
 
     /**
@@ -39,19 +35,16 @@ public class Vertex {
         return new double[] {x,y};
     }
 
-    public void addEdge(Edge edge)
-    {
-        if (edges.contains(edge))
-            return;
-        edges.add(edge);
-    }
-    public void removeEdge(Edge edge)
-    {
-        edges.remove(edge);
+    /**
+     * Gets the index of the vertex in the mesh of the current sweep
+     * @return the index, or -1 if the vertex is not in a mesh
+     */
+    public int getIndex() {
+        return index;
     }
 
-    public ArrayList<Edge> getEdges() {
-        return edges;
+    public void setIndex(int index) {
+        this.index = index;
     }
 
     public int getX() {
@@ -69,10 +62,6 @@ public class Vertex {
         return prev;
     }
 
-    public void setColor(Color color) {
-        this.color = color;
-    }
-
     public void setNext(Vertex next) {
         this.next = next;
     }
@@ -90,28 +79,12 @@ public class Vertex {
     }
 
     /**
-     * Gets rid of any of the given edges from the edgeList
-     * @param edgeArrayList a list of edges that may need to be removed
-     */
-    public void clear(ArrayList<Edge> edgeArrayList)
-    {
-        for (int i = 0; i < edges.size();i++)
-        {
-            Edge edge = edges.get(i);
-            if (!edgeArrayList.contains(edge))
-            {
-                removeEdge(edge);
-                i--;
-            }
-        }
-    }
-
-    /**
-     * Paints the vertex in the GraphPanel
+     * Paints the vertex in the GraphPanel, which decides its colour
      * @param g the graphics object for the GraphPanel
      * @param i the index of the vertex
+     * @param color the colour to fill it with
      */
-    public void paint(Graphics g, int i)
+    public void paint(Graphics g, int i, Color color)
     {
         g.setColor(color);
         g.fillOval(x-4,y-4,8,8);
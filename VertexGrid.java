@@ -0,0 +1,203 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * A uniform grid of square cells over the plane for finding vertices near a point or a line without
+ * looking at every vertex. Vertices are added and removed one at a time as the PSLG is edited.
+ */
+public class VertexGrid {
+    private final int cellSize;
+    private final HashMap<Long,ArrayList<Vertex>> cells;
+    private int size;
+    private int minColumn, maxColumn, minRow, maxRow;
+
+    /**
+     * Constructs an empty grid
+     * @param cellSize the width of a cell, about the distance between neighbouring vertices works best
+     */
+    public VertexGrid(int cellSize)
+    {
+        this.cellSize = Math.max(1, cellSize);
+        cells = new HashMap<>();
+    }
+
+    /**
+     * Constructs a grid holding some vertices
+     * @param cellSize the width of a cell
+     * @param vertices the vertices
+     */
+    public VertexGrid(int cellSize, Iterable<Vertex> vertices)
+    {
+        this(cellSize);
+        for (Vertex vertex : vertices)
+            add(vertex);
+    }
+
+    public void add(Vertex vertex)
+    {
+        int column = cell(vertex.getX()), row = cell(vertex.getY());
+        cells.computeIfAbsent(key(column, row), k -> new ArrayList<>()).add(vertex);
+        if (size++ == 0)
+        {
+            minColumn = maxColumn = column;
+            minRow = maxRow = row;
+        }
+        minColumn = Math.min(minColumn, column);
+        maxColumn = Math.max(maxColumn, column);
+        minRow = Math.min(minRow, row);
+        maxRow = Math.max(maxRow, row);
+    }
+
+    /**
+     * Removes a vertex, the bounds of the occupied cells are not shrunk
+     * @param vertex the vertex
+     * @return true if the vertex was in the grid
+     */
+    public boolean remove(Vertex vertex)
+    {
+        long key = key(cell(vertex.getX()), cell(vertex.getY()));
+        ArrayList<Vertex> cell = cells.get(key);
+        if (cell == null)
+            return false;
+        for (int i = 0; i < cell.size(); i++)
+        {
+            if (cell.get(i) == vertex)
+            {
+                cell.set(i, cell.get(cell.size()-1));
+                cell.remove(cell.size()-1);
+                if (cell.isEmpty())
+                    cells.remove(key);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void clear()
+    {
+        cells.clear();
+        size = 0;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Finds the vertex closest to a point by searching rings of cells outwards from the point's cell
+     * @param x the x-coord of the point
+     * @param y the y-coord of the point
+     * @return the closest vertex, or null if the grid is empty
+     */
+    public Vertex nearest(int x, int y)
+    {
+        if (size == 0)
+            return null;
+        int column = cell(x), row = cell(y);
+        int reach = Math.max(Math.max(column - minColumn, maxColumn - column), Math.max(row - minRow, maxRow - row));
+        Vertex best = null;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int ring = 0; ring <= reach; ring++)
+        {
+            for (int i = column - ring; i <= column + ring; i++)
+            {
+                for (int j = row - ring; j <= row + ring; j += (i == column - ring || i == column + ring) ? 1 : 2 * ring)
+                {
+                    ArrayList<Vertex> cell = cells.get(key(i, j));
+                    if (cell == null)
+                        continue;
+                    for (Vertex vertex : cell)
+                    {
+                        double distance = vertex.distance(x, y);
+                        if (distance < bestDistance)
+                        {
+                            bestDistance = distance;
+                            best = vertex;
+                        }
+                    }
+                }
+            }
+            if (bestDistance <= (double) ring * cellSize)
+                break;
+        }
+        return best;
+    }
+
+    /**
+     * Finds the vertex closest to the line through two points, searching a band of cells along the line
+     * which is widened until it must hold the closest vertex
+     * @param ax x-coord of a point on the line
+     * @param ay y-coord of a point on the line
+     * @param bx x-coord of another point on the line
+     * @param by y-coord of another point on the line
+     * @param exclude a vertex to leave out, may be null
+     * @return the closest vertex, or null if there is none or the points are the same
+     */
+    public Vertex nearestToLine(int ax, int ay, int bx, int by, Vertex exclude)
+    {
+        if (size == 0 || (ax == bx && ay == by))
+            return null;
+        boolean steep = Math.abs((long) by - ay) > Math.abs((long) bx - ax);
+        double length = Math.hypot((double) bx - ax, (double) by - ay);
+        Vertex best = null;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        int lanes = steep ? maxRow - minRow : maxColumn - minColumn;
+        int lowest = steep ? minColumn : minRow, highest = steep ? maxColumn : maxRow;
+        for (int band = 0; ; band = Math.max(1, 2 * band))
+        {
+            boolean covered = true;
+            for (int lane = 0; lane <= lanes; lane++)
+            {
+                int along = (steep ? minRow : minColumn) + lane;
+                double from = lineAt(ax, ay, bx, by, steep, (double) along * cellSize);
+                double to = lineAt(ax, ay, bx, by, steep, (double) (along + 1) * cellSize);
+                int first = (int) Math.max((long) cell(Math.min(from, to)) - band, lowest);
+                int last = (int) Math.min((long) cell(Math.max(from, to)) + band, highest);
+                if (first > lowest || last < highest)
+                    covered = false;
+                for (int across = first; across <= last; across++)
+                {
+                    ArrayList<Vertex> cell = cells.get(steep ? key(across, along) : key(along, across));
+                    if (cell == null)
+                        continue;
+                    for (Vertex vertex : cell)
+                    {
+                        if (vertex == exclude)
+                            continue;
+                        double distance = Math.abs((double) Predicates.cross(ax, ay, bx, by, vertex.getX(), vertex.getY())) / length;
+                        if (distance < bestDistance)
+                        {
+                            bestDistance = distance;
+                            best = vertex;
+                        }
+                    }
+                }
+            }
+            if (bestDistance * Math.sqrt(2) <= (double) band * cellSize || covered)
+                return best;
+        }
+    }
+
+    /**
+     * Finds where the line through two points is at a given x-coord, or at a given y-coord if it is steep
+     * @return the other coord of the point on the line
+     */
+    private static double lineAt(int ax, int ay, int bx, int by, boolean steep, double t)
+    {
+        if (steep)
+            return ax + ((double) bx - ax) * (t - ay) / ((double) by - ay);
+        return ay + ((double) by - ay) * (t - ax) / ((double) bx - ax);
+    }
+
+    private int cell(double coord)
+    {
+        return (int) Math.floor(coord / cellSize);
+    }
+
+    private static long key(int column, int row)
+    {
+        return ((long) column << 32) | (row & 0xffffffffL);
+    }
+}
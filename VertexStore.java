@@ -0,0 +1,165 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A read-only PSLG in struct-of-arrays form for inputs too large for a Vertex per point. The coords are two
+ * int columns and the adjacency is in compressed sparse row form: the neighbours of vertex i are
+ * neighbours[offsets[i]] to neighbours[offsets[i+1]-1], each edge listed at both of its ends.
+ * <p>
+ * The columns are held in IntBuffers, wrapping int arrays on the heap or in direct buffers off the heap,
+ * where they do not add to the heap the garbage collector has to trace. A direct buffer holds at most
+ * Integer.MAX_VALUE bytes, so a column off the heap holds at most about 536 million ints.
+ * <p>
+ * The footprint is 12 bytes a vertex plus 8 bytes an edge, the two coords and an offset for each vertex and
+ * two neighbour entries for each edge, so 28 bytes a vertex for a typical planar graph of about 2.5 edges a
+ * vertex. A Vertex object alone takes about 32 bytes with compressed references, its header, coords, index
+ * and next and prev links, before the Edge objects and ArrayList slots that refer to it.
+ */
+public class VertexStore {
+    private final IntBuffer xs, ys, offsets, neighbours;
+    private final int size;
+
+    private VertexStore(IntBuffer xs, IntBuffer ys, IntBuffer offsets, IntBuffer neighbours, int size)
+    {
+        this.xs = xs;
+        this.ys = ys;
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+        this.size = size;
+    }
+
+    /**
+     * Builds the store of a PSLG
+     * @param pslg the PSLG
+     * @param offHeap whether to hold the columns in direct buffers instead of arrays on the heap
+     * @return the store
+     */
+    public static VertexStore of(Pslg pslg, boolean offHeap)
+    {
+        int n = pslg.size();
+        IntBuffer xs = allocate(n, offHeap), ys = allocate(n, offHeap);
+        xs.put(0, pslg.xs, 0, n);
+        ys.put(0, pslg.ys, 0, n);
+        return build(xs, ys, 2 * pslg.edgeCount(), i -> pslg.edgePairs[i], offHeap);
+    }
+
+    /**
+     * Builds the store from its coord columns and the edges, finding the adjacency with a counting sort of
+     * the edge ends, so the edges are read twice but never copied
+     * @param xs the x-coords
+     * @param ys the y-coords
+     * @param ends the number of edge ends, twice the number of edges
+     * @param edgeEnd gives the vertex at each edge end, the ends of an edge being 2k and 2k+1
+     * @param offHeap whether to hold the adjacency in direct buffers
+     * @return the store
+     */
+    static VertexStore build(IntBuffer xs, IntBuffer ys, int ends, IntUnaryOperator edgeEnd, boolean offHeap)
+    {
+        int n = xs.capacity();
+        IntBuffer offsets = allocate(n + 1, offHeap);
+        for (int i = 0; i < ends; i++)
+        {
+            int end = edgeEnd.applyAsInt(i) + 1;
+            offsets.put(end, offsets.get(end) + 1);
+        }
+        for (int i = 1; i <= n; i++)
+            offsets.put(i, offsets.get(i) + offsets.get(i - 1));
+        IntBuffer neighbours = allocate(ends, offHeap);
+        IntBuffer filled = allocate(n, offHeap);
+        for (int i = 0; i < ends; i++)
+        {
+            int from = edgeEnd.applyAsInt(i), to = edgeEnd.applyAsInt(i ^ 1);
+            int k = filled.get(from);
+            filled.put(from, k + 1);
+            neighbours.put(offsets.get(from) + k, to);
+        }
+        return new VertexStore(xs, ys, offsets, neighbours, n);
+    }
+
+    static IntBuffer allocate(int length, boolean offHeap)
+    {
+        if (!offHeap)
+            return IntBuffer.wrap(new int[length]);
+        if (length > Integer.MAX_VALUE / 4)
+            throw new IllegalArgumentException(length + " ints are too many for a direct buffer");
+        return ByteBuffer.allocateDirect(4 * length).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public int edgeCount()
+    {
+        return neighbours.capacity() / 2;
+    }
+
+    public int getX(int i)
+    {
+        return xs.get(i);
+    }
+
+    public int getY(int i)
+    {
+        return ys.get(i);
+    }
+
+    public int degree(int i)
+    {
+        return offsets.get(i + 1) - offsets.get(i);
+    }
+
+    /**
+     * Gets a neighbour of a vertex, in the order its edges came in the PSLG
+     * @param i the vertex
+     * @param k which neighbour, from 0 to degree(i)-1
+     * @return the index of the neighbour
+     */
+    public int neighbour(int i, int k)
+    {
+        return neighbours.get(offsets.get(i) + k);
+    }
+
+    /**
+     * Gets the number of bytes the columns take, on or off the heap
+     * @return the footprint
+     */
+    public long bytes()
+    {
+        return 4L * (xs.capacity() + ys.capacity() + offsets.capacity() + neighbours.capacity());
+    }
+
+    public boolean isOffHeap()
+    {
+        return xs.isDirect();
+    }
+
+    /**
+     * Copies the store back into a Pslg, with each edge once in the order of its lower end, loops are left out
+     * @return the PSLG
+     */
+    public Pslg toPslg()
+    {
+        int[] xs = new int[size], ys = new int[size], edgePairs = new int[2 * edgeCount()];
+        this.xs.get(0, xs);
+        this.ys.get(0, ys);
+        int count = 0;
+        for (int i = 0; i < size; i++)
+        {
+            for (int k = 0; k < degree(i); k++)
+            {
+                int j = neighbour(i, k);
+                if (i < j)
+                {
+                    edgePairs[count++] = i;
+                    edgePairs[count++] = j;
+                }
+            }
+        }
+        return new Pslg(xs, ys, Arrays.copyOf(edgePairs, count));
+    }
+}